@@ -25,9 +25,24 @@ REM Stop existing containers if they exist
 echo 🛑 Stopping existing containers...
 docker-compose down --remove-orphans
 
-REM Build and start services
-echo 🔨 Building and starting services...
-docker-compose up --build -d
+REM Build images
+echo 🔨 Building services...
+docker-compose build
+
+REM Apply schema changes once; the backend only validates the schema on boot
+echo 🗄️ Applying schema changes...
+docker-compose up -d postgres
+:wait_postgres
+docker-compose exec -T postgres pg_isready -U postgres >nul 2>&1
+if %errorlevel% neq 0 (
+    timeout /t 1 /nobreak >nul
+    goto wait_postgres
+)
+docker-compose run --rm -e SPRING_JPA_HIBERNATE_DDL_AUTO=update -e JAVA_TOOL_OPTIONS=-Dspring.context.exit=onRefresh splitter-app
+
+REM Start services
+echo 🚀 Starting services...
+docker-compose up -d
 
 REM Wait for services to be healthy
 echo ⏳ Waiting for services to start...
@@ -48,7 +63,7 @@ if %errorlevel% equ 0 (
 )
 
 REM Check Spring Boot app
-curl -f http://localhost:8080/actuator/health >nul 2>&1
+curl -f http://localhost:8081/actuator/health >nul 2>&1
 if %errorlevel% equ 0 (
     echo ✅ Spring Boot application is ready
 ) else (
@@ -24,9 +24,20 @@ echo "✅ Docker is running"
 echo "🛑 Stopping existing containers..."
 docker-compose down --remove-orphans || true
 
-# Build and start services
-echo "🔨 Building and starting services..."
-docker-compose up --build -d
+# Build images
+echo "🔨 Building services..."
+docker-compose build
+
+# Apply schema changes once; the backend only validates the schema on boot
+echo "🗄️  Applying schema changes..."
+docker-compose up -d postgres
+until docker-compose exec -T postgres pg_isready -U postgres > /dev/null 2>&1; do sleep 1; done
+docker-compose run --rm -e SPRING_JPA_HIBERNATE_DDL_AUTO=update \
+    -e JAVA_TOOL_OPTIONS=-Dspring.context.exit=onRefresh splitter-app
+
+# Start services
+echo "🚀 Starting services..."
+docker-compose up -d
 
 # Wait for services to be healthy
 echo "⏳ Waiting for services to start..."
@@ -45,7 +56,7 @@ else
 fi
 
 # Check Spring Boot app
-if curl -f http://localhost:8080/actuator/health > /dev/null 2>&1; then
+if curl -f http://localhost:8081/actuator/health > /dev/null 2>&1; then
     echo "✅ Spring Boot application is ready"
 else
     echo "❌ Spring Boot application is not ready"
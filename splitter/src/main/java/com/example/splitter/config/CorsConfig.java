@@ -1,5 +1,6 @@
 package com.example.splitter.config;
 
+import com.example.splitter.service.RecentWrites;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -19,6 +20,8 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedOrigins("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                // Read by the client so its next reads see its own writes on any instance
+                .exposedHeaders(RecentWrites.HEADER)
                 .allowCredentials(false)
                 .maxAge(3600);
     }
@@ -29,6 +32,7 @@ public class CorsConfig implements WebMvcConfigurer {
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList(RecentWrites.HEADER));
         configuration.setAllowCredentials(false);
         configuration.setMaxAge(3600L);
         
@@ -0,0 +1,59 @@
+package com.example.splitter.config;
+
+import com.example.splitter.service.OcrAdmissionControl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+@Configuration
+public class OcrAdmissionConfig {
+
+    @Bean
+    public OcrAdmissionFilter ocrAdmissionFilter() {
+        return new OcrAdmissionFilter();
+    }
+
+    @Bean
+    public FilterRegistrationBean<OcrAdmissionFilter> ocrAdmissionFilterRegistration(OcrAdmissionFilter filter) {
+        FilterRegistrationBean<OcrAdmissionFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/ocr/extract");
+        return registration;
+    }
+
+    /**
+     * GET /actuator/ocradmission shows the limits and current load; POST with any of the
+     * limit fields changes them without a restart. Actuator runs on management.server.port,
+     * bound to 127.0.0.1, so the write operation is not reachable through the public port.
+     */
+    @Endpoint(id = "ocradmission")
+    public static class OcrAdmissionEndpoint {
+
+        @Autowired
+        private OcrAdmissionControl admissionControl;
+
+        @ReadOperation
+        public Map<String, Object> limits() {
+            return admissionControl.getLimits();
+        }
+
+        @WriteOperation
+        public Map<String, Object> update(@Nullable Double ratePerSecond, @Nullable Integer burst,
+                                          @Nullable Integer maxConcurrent, @Nullable Integer maxQueue,
+                                          @Nullable Long maxWaitMs) {
+            admissionControl.updateLimits(ratePerSecond, burst, maxConcurrent, maxQueue, maxWaitMs);
+            return admissionControl.getLimits();
+        }
+    }
+
+    @Bean
+    public OcrAdmissionEndpoint ocrAdmissionEndpoint() {
+        return new OcrAdmissionEndpoint();
+    }
+}
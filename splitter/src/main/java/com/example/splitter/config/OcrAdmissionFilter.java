@@ -0,0 +1,72 @@
+package com.example.splitter.config;
+
+import com.example.splitter.service.OcrAdmissionControl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds excess /ocr/extract traffic with 429 and Retry-After before the multipart body
+ * is parsed. Registered for that path only by {@link OcrAdmissionConfig}.
+ */
+public class OcrAdmissionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private OcrAdmissionControl admissionControl;
+
+    // Header naming the client; falls back to the remote address when blank or absent
+    @Value("${ocr.admission.client-header:}")
+    private String clientHeader;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        OcrAdmissionControl.Decision decision;
+        try {
+            decision = admissionControl.admit(clientId(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        if (!decision.admitted()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("OCR request rejected (" + decision.outcome().name().toLowerCase()
+                    + "), retry after " + decision.retryAfterSeconds() + "s");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionControl.release();
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        if (clientHeader != null && !clientHeader.isBlank()) {
+            String header = request.getHeader(clientHeader);
+            if (header != null && !header.isBlank()) {
+                return header;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
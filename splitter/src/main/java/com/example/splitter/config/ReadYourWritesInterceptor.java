@@ -0,0 +1,57 @@
+package com.example.splitter.config;
+
+import com.example.splitter.service.RecentWrites;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Pins a read to the primary when it targets a receipt written within the replica-lag
+ * window. Receipt endpoints take the id as either receiptId or id.
+ *
+ * The pin is a thread-local, so it is dropped as soon as the request thread is done with
+ * the request: at completion, or when an async handler (e.g. a StreamingResponseBody)
+ * hands the rest of the work to another thread. The async dispatch that finishes such a
+ * request comes through preHandle again.
+ */
+@Component
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    @Autowired
+    private RecentWrites recentWrites;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Long receiptId = parseId(request.getParameter("receiptId"));
+        if (receiptId == null) {
+            receiptId = parseId(request.getParameter("id"));
+        }
+        if (receiptId != null && recentWrites.isRecentlyWritten(receiptId, request)) {
+            ReplicaRoutingDataSource.pinToPrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    private static Long parseId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
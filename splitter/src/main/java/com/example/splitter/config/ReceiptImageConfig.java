@@ -0,0 +1,75 @@
+package com.example.splitter.config;
+
+import com.example.splitter.service.ReceiptImageSweeper;
+import com.example.splitter.service.ReceiptReextractionJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+/**
+ * Operator-only jobs over the stored receipt images. Like /actuator/ocradmission they
+ * are served on management.server.port, bound to 127.0.0.1: a re-extraction sweep can
+ * spend a lot of OpenAI calls, so it must not be startable through the public port.
+ */
+@Configuration
+public class ReceiptImageConfig {
+
+    /** GET /actuator/reextract shows progress; POST, optionally with afterId, starts a sweep. */
+    @Endpoint(id = "reextract")
+    public static class ReextractionEndpoint {
+
+        @Autowired
+        private ReceiptReextractionJob receiptReextractionJob;
+
+        @ReadOperation
+        public Map status() {
+            return receiptReextractionJob.getStatus().getBody();
+        }
+
+        @WriteOperation
+        public WebEndpointResponse<Map> start(@Nullable Long afterId) {
+            return toEndpointResponse(receiptReextractionJob.start(afterId == null ? 0 : afterId));
+        }
+    }
+
+    /** GET /actuator/imagesweep shows the last orphan sweep; POST runs one now. */
+    @Endpoint(id = "imagesweep")
+    public static class ImageSweepEndpoint {
+
+        @Autowired
+        private ReceiptImageSweeper receiptImageSweeper;
+
+        @ReadOperation
+        public Map status() {
+            return receiptImageSweeper.getStatus().getBody();
+        }
+
+        @WriteOperation
+        public WebEndpointResponse<Map> start() {
+            return toEndpointResponse(receiptImageSweeper.start());
+        }
+    }
+
+    @Bean
+    public ReextractionEndpoint reextractionEndpoint() {
+        return new ReextractionEndpoint();
+    }
+
+    @Bean
+    public ImageSweepEndpoint imageSweepEndpoint() {
+        return new ImageSweepEndpoint();
+    }
+
+    // Keeps the 202/409 from the job
+    private static WebEndpointResponse<Map> toEndpointResponse(ResponseEntity<Map> response) {
+        return new WebEndpointResponse<>(response.getBody(), response.getStatusCode().value());
+    }
+}
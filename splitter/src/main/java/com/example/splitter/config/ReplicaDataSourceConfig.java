@@ -0,0 +1,86 @@
+package com.example.splitter.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Primary/replica datasource pair. The replica pool is only created when
+ * spring.datasource.replica.url is set; without it read-only work is routed to the
+ * primary as well. This is decided when the datasource is built rather than by a bean
+ * condition, because Spring AOT evaluates bean conditions at build time.
+ */
+@Configuration
+public class ReplicaDataSourceConfig {
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HikariDataSource replicaPool;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties dataSourceProperties) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryPool) {
+        DataSource replica = primaryPool;
+        if (StringUtils.hasText(environment.getProperty("spring.datasource.replica.url"))) {
+            replicaPool = createReplicaPool();
+            replica = replicaPool;
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.PRIMARY, primaryPool,
+                ReplicaRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primaryPool);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Not a bean, so it is closed here once the datasource's users have shut down
+    @PreDestroy
+    void closeReplicaPool() {
+        if (replicaPool != null) {
+            replicaPool.close();
+        }
+    }
+
+    private HikariDataSource createReplicaPool() {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties properties = binder.bind("spring.datasource.replica", DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.replica.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        // Boot only instruments pools that are beans
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.splitter.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections for read-only transactions to the replica and everything else to
+ * the primary. Must sit behind a LazyConnectionDataSourceProxy: the transaction
+ * manager only marks a transaction read-only after it begins, so the physical
+ * connection has to be fetched on first use rather than at begin.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    // Set for requests that must see their own recent writes
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && PINNED.get() == null) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.splitter.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    // Prototype bean carrying Boot's Jackson settings and every Module bean (e.g. Blackbird)
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor);
+    }
+
+    /**
+     * CBOR as an alternative to JSON for the same endpoints, chosen by Accept and
+     * Content-Type: application/cbor. Added after the JSON converter so JSON stays the
+     * default for clients that accept anything. The String converter would write plain
+     * text under any media type, so it is kept away from CBOR and String bodies are
+     * encoded as CBOR text strings instead.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> converter instanceof StringHttpMessageConverter string
+                ? new NonCborStringHttpMessageConverter(string.getDefaultCharset())
+                : converter);
+        ObjectMapper cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+    }
+
+    private static class NonCborStringHttpMessageConverter extends StringHttpMessageConverter {
+
+        NonCborStringHttpMessageConverter(Charset defaultCharset) {
+            super(defaultCharset);
+        }
+
+        @Override
+        protected boolean canWrite(MediaType mediaType) {
+            return !MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType) && super.canWrite(mediaType);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.splitter.controller;
+
+import com.example.splitter.service.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/analytics")
+@CrossOrigin(origins = "*")
+public class analyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @GetMapping("/users")
+    public ResponseEntity<?> getUserSpend(@RequestParam String name,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "day") String granularity) {
+        return analyticsService.getUserSpend(name, from, to, granularity);
+    }
+
+    @GetMapping("/stores")
+    public ResponseEntity<?> getStoreSpend(@RequestParam String store,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                           @RequestParam(defaultValue = "day") String granularity) {
+        return analyticsService.getStoreSpend(store, from, to, granularity);
+    }
+
+    @GetMapping("/stores/top")
+    public ResponseEntity<?> getTopStores(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return analyticsService.getTopStores(from, to, limit);
+    }
+
+    @PostMapping("/backfill")
+    public ResponseEntity<Map> backfill() {
+        return analyticsService.backfill();
+    }
+}
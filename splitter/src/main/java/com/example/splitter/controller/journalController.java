@@ -0,0 +1,50 @@
+package com.example.splitter.controller;
+
+import com.example.splitter.model.ReceiptActivity;
+import com.example.splitter.model.ReceiptEvent;
+import com.example.splitter.repo.ReceiptActivityRepo;
+import com.example.splitter.repo.ReceiptEventRepo;
+import com.example.splitter.service.ProjectionRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/journal")
+@CrossOrigin(origins = "*")
+public class journalController {
+
+    @Autowired
+    private ReceiptEventRepo receiptEventRepo;
+
+    @Autowired
+    private ReceiptActivityRepo receiptActivityRepo;
+
+    @Autowired
+    private ProjectionRunner projectionRunner;
+
+    @GetMapping("/events")
+    public ResponseEntity<List<ReceiptEvent>> getReceiptEvents(@RequestParam Long receiptId) {
+        // Audit trail of every mutation of the receipt, oldest first
+        return ResponseEntity.ok(receiptEventRepo.findByReceiptIdOrderByIdAsc(receiptId));
+    }
+
+    @GetMapping("/activity")
+    public ResponseEntity<ReceiptActivity> getReceiptActivity(@RequestParam Long receiptId) {
+        return ResponseEntity.of(receiptActivityRepo.findById(receiptId));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map> rebuildProjection(@RequestParam String projector) {
+        // Drops the read model and replays the whole journal into it in the background
+        return projectionRunner.rebuild(projector);
+    }
+
+    @GetMapping("/rebuild")
+    public ResponseEntity<Map> getRebuildStatus(@RequestParam String projector) {
+        return projectionRunner.getRebuildStatus(projector);
+    }
+}
@@ -2,10 +2,14 @@ package com.example.splitter.controller;
 
 import com.example.splitter.model.dto.BillsDTO;
 import com.example.splitter.service.OcrService;
+import com.example.splitter.service.ReceiptSearchService;
+import com.example.splitter.service.ReceiptVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -17,8 +21,14 @@ public class ocrController {
     @Autowired
     private OcrService ocrService;
 
+    @Autowired
+    private ReceiptSearchService receiptSearchService;
+
+    @Autowired
+    private ReceiptVersions receiptVersions;
+
     @PostMapping("/extract")
-    public ResponseEntity<String> extractReceiptInfo(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> extractReceiptInfo(@RequestParam("file") MultipartFile file) {
         // 1. Validate file
         // 2. Send to OpenAI API (see next step)
         // 3. Return extracted info
@@ -42,11 +52,22 @@ public class ocrController {
     }
 
     @GetMapping("/receipt")
-    public ResponseEntity<String> getReceiptInfo(@RequestParam Long id) {
-        // 1. Validate file
-        // 2. Send to OpenAI API (see next step)
-        // 3. Return extracted info
+    public ResponseEntity<?> getReceiptInfo(@RequestParam Long id, WebRequest request) {
+        // Unchanged since the client's copy: 304 without loading the receipt
+        if (request.checkNotModified(receiptVersions.etag("receipt", id, request))) {
+            return null;
+        }
         return ocrService.getReceiptFromDatabase(id);
     }
 
+    @GetMapping("/receipt/image")
+    public ResponseEntity<StreamingResponseBody> getReceiptImage(@RequestParam Long id) {
+        return ocrService.getReceiptImage(id);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchReceipts(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return receiptSearchService.search(q, limit);
+    }
+
 }
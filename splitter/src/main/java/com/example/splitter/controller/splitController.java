@@ -4,13 +4,18 @@ import com.example.splitter.model.Share;
 import com.example.splitter.model.Users;
 import com.example.splitter.model.dto.ShareDTO;
 import com.example.splitter.model.dto.UsersDTO;
+import com.example.splitter.service.ReceiptVersions;
+import com.example.splitter.service.SettlementService;
 import com.example.splitter.service.SplitService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.example.splitter.model.Split;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -21,15 +26,24 @@ public class splitController {
     @Autowired
     private SplitService splitService;
 
+    @Autowired
+    private ReceiptVersions receiptVersions;
+
+    @Autowired
+    private SettlementService settlementService;
+
     @PostMapping("/users")
-    public ResponseEntity<String> usersInSplit(@RequestBody List<UsersDTO> users) {
+    public ResponseEntity<Map> usersInSplit(@RequestBody List<UsersDTO> users,
+                                            @RequestParam(defaultValue = "false") boolean replace) {
         // Logic to add users to the split would go here
-        return splitService.usersInSplit(users);
+        return splitService.usersInSplit(users, replace);
     }
 
     @GetMapping("/users" )
-    public ResponseEntity<Optional<List<Users>>> getUsersInSplit(@RequestParam Long receiptId) {
-
+    public ResponseEntity<Optional<List<Users>>> getUsersInSplit(@RequestParam Long receiptId, WebRequest request) {
+        if (request.checkNotModified(receiptVersions.etag("users", receiptId, request))) {
+            return null;
+        }
         return splitService.getUsersInSplit(receiptId);
     }
 
@@ -46,15 +60,24 @@ public class splitController {
     }
 
     @GetMapping("/share")
-    public ResponseEntity<Optional<List<Share>>> getBillShare(@RequestParam Long receiptId) {
-
+    public ResponseEntity<Optional<List<Share>>> getBillShare(@RequestParam Long receiptId, WebRequest request) {
+        if (request.checkNotModified(receiptVersions.etag("share", receiptId, request))) {
+            return null;
+        }
         return splitService.getBillShare(receiptId);
     }
 
     @GetMapping("/split")
-    public ResponseEntity<String> getShareByReceiptId(@RequestParam Long receiptId) {
-
+    public ResponseEntity<String> getShareByReceiptId(@RequestParam Long receiptId, WebRequest request) {
+        if (request.checkNotModified(receiptVersions.etag("split", receiptId, request))) {
+            return null;
+        }
         return splitService.getShareByReceiptId(receiptId);
     }
 
+    @PostMapping("/settlements")
+    public ResponseEntity<StreamingResponseBody> settleReceipts(@RequestBody List<Long> receiptIds) {
+        // NDJSON stream, one line of per-user totals per receipt
+        return settlementService.settle(receiptIds);
+    }
 }
@@ -10,6 +10,8 @@ import java.util.List;
 import com.example.splitter.model.Items;
 
 @Entity (name = "bills")
+// Looked up by image on every upload and by the orphan image sweep
+@Table(indexes = @Index(name = "idx_bills_image_id", columnList = "image_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,6 +31,12 @@ public class Bills {
     @Column(name = "tax_total")
     private double taxTotal;
     private double total;
+    // Perceptual hash (dHash) of the uploaded image, used for near-duplicate detection
+    @Column(name = "image_hash")
+    private Long imageHash;
+    // SHA-256 key of the original image in ReceiptImageStore
+    @Column(name = "image_id", length = 64)
+    private String imageId;
 
     @OneToMany(mappedBy = "bills", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Items> items;
@@ -0,0 +1,28 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last journal event applied by a projector, as its (txid, id) position; updated in the
+ * same transaction as its read model. lastTxid is null for checkpoints written before
+ * events carried a txid.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "projection_checkpoints")
+public class ProjectionCheckpoint {
+
+    @Id
+    private String name;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Column(name = "last_txid")
+    private Long lastTxid;
+}
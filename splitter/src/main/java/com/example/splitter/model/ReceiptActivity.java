@@ -0,0 +1,30 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/** Read model built from the journal: how often and how recently each receipt changed. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "receipt_activity")
+public class ReceiptActivity {
+
+    @Id
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    @Column(name = "event_count")
+    private long eventCount;
+
+    @Column(name = "last_event_type")
+    private String lastEventType;
+
+    @Column(name = "last_event_at")
+    private Instant lastEventAt;
+}
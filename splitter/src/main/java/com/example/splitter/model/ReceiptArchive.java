@@ -0,0 +1,35 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/** Where an archived receipt went: the compressed NDJSON file that holds its rows. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "receipt_archive", indexes = @Index(name = "idx_receipt_archive_image_id", columnList = "image_id"))
+public class ReceiptArchive {
+
+    @Id
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    // Start of the gzip member holding the receipt's line; null for files written as one member
+    @Column(name = "block_offset")
+    private Long blockOffset;
+
+    // Original image the receipt pointed at, so the orphan image sweep keeps it
+    @Column(name = "image_id", length = 64)
+    private String imageId;
+}
@@ -0,0 +1,47 @@
+package com.example.splitter.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One entry of the append-only journal of bill and split mutations. Written in the
+ * same transaction as the mutation itself (transactional outbox), so the journal never
+ * disagrees with the tables it describes.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "receipt_events", indexes = {
+        @Index(name = "idx_receipt_events_receipt_id", columnList = "receipt_id"),
+        @Index(name = "idx_receipt_events_txid_id", columnList = "txid, id")
+})
+public class ReceiptEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "receipt_id", nullable = false)
+    private Long receiptId;
+
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    // Compact JSON describing the mutation
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // Id of the writing transaction, filled in by the database; orders events by visibility
+    @JsonIgnore
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint default txid_current()")
+    private Long txid;
+}
@@ -0,0 +1,22 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Bumped in the same transaction as every mutation of the receipt; backs the ETags of its reads. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "receipt_versions")
+public class ReceiptVersion {
+
+    @Id
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,29 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/** What one receipt currently adds to store_spend_daily; see {@link UserSpendContribution}. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "store_spend_contributions")
+public class StoreSpendContribution {
+
+    @Id
+    @Column(name = "receipt_id")
+    private Long receiptId;
+
+    @Column(name = "store_name", nullable = false)
+    private String storeName;
+
+    @Column(name = "spend_date")
+    private LocalDate spendDate;
+
+    private double amount;
+}
@@ -0,0 +1,39 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/** Rollup: receipt totals per store per day. Written by SpendRollupProjector. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(StoreSpendDaily.Key.class)
+@Table(name = "store_spend_daily", indexes = @Index(name = "idx_store_spend_daily_spend_date", columnList = "spend_date"))
+public class StoreSpendDaily {
+
+    @Id
+    @Column(name = "store_name")
+    private String storeName;
+
+    @Id
+    @Column(name = "spend_date")
+    private LocalDate spendDate;
+
+    private double amount;
+
+    private int receipts;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String storeName;
+        private LocalDate spendDate;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * What one user row currently adds to user_spend_daily, kept so a changed receipt can
+ * take its old amounts back out of the rollup before adding the new ones.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_spend_contributions", indexes = @Index(name = "idx_user_spend_contributions_receipt_id", columnList = "receipt_id"))
+public class UserSpendContribution {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "receipt_id", nullable = false)
+    private Long receiptId;
+
+    @Column(name = "user_name", nullable = false)
+    private String userName;
+
+    // Null for receipts without a parseable date; those are left out of the rollup
+    @Column(name = "spend_date")
+    private LocalDate spendDate;
+
+    private double amount;
+}
@@ -0,0 +1,39 @@
+package com.example.splitter.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/** Rollup: what a user (by name) spent per day, tax included. Written by SpendRollupProjector. */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(UserSpendDaily.Key.class)
+@Table(name = "user_spend_daily")
+public class UserSpendDaily {
+
+    @Id
+    @Column(name = "user_name")
+    private String userName;
+
+    @Id
+    @Column(name = "spend_date")
+    private LocalDate spendDate;
+
+    private double amount;
+
+    private int receipts;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userName;
+        private LocalDate spendDate;
+    }
+}
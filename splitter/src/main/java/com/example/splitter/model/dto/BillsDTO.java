@@ -21,5 +21,11 @@ public class BillsDTO {
     private double taxTotal;
     private double total;
     private List<ItemsDTO> items;
+    // Hex perceptual hash of the source image; a string because JS numbers cannot hold 64 bits
+    private String imageHash;
+    // Set when the upload looks like a re-shot of an already stored receipt
+    private Long duplicateOf;
+    // Content-addressed id of the stored original image
+    private String imageId;
 }
 
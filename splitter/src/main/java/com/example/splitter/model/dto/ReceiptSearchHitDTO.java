@@ -0,0 +1,17 @@
+package com.example.splitter.model.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ReceiptSearchHitDTO {
+
+    private Long receiptId;
+    private String storeName;
+    private String date;
+    // Which column matched best: item, store or address
+    private String field;
+    private String matched;
+    private double score;
+}
@@ -1,15 +1,36 @@
 package com.example.splitter.repo;
 
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.splitter.model.Bills;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BillsRepo extends JpaRepository<Bills, String> {
+public interface BillsRepo extends JpaRepository<Bills, String>, BillsRepoCustom {
 //    Optional<Bills> findById(Long Id);
     Optional<Bills> findByReceiptId(Long receiptId);
+
+    // Oldest receipt extracted from the byte-identical image
+    Optional<Bills> findFirstByImageIdOrderByReceiptIdAsc(String imageId);
+
+    // Keyset-paged (receiptId, imageHash) pairs for rebuilding the near-duplicate index
+    @Query("SELECT b.receiptId, b.imageHash FROM bills b WHERE b.imageHash IS NOT NULL AND b.receiptId > :after ORDER BY b.receiptId")
+    List<Object[]> findImageHashesAfter(@Param("after") Long after, Pageable pageable);
+
+    // Keyset-paged (receiptId, imageId) pairs for sweeping stored originals
+    @Query("SELECT b.receiptId, b.imageId FROM bills b WHERE b.imageId IS NOT NULL AND b.receiptId > :after ORDER BY b.receiptId")
+    List<Object[]> findImageIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    // Which of the given stored originals a receipt still points at
+    @Query("SELECT DISTINCT b.imageId FROM bills b WHERE b.imageId IN :imageIds")
+    List<String> findReferencedImageIds(@Param("imageIds") Collection<String> imageIds);
+
 }
@@ -0,0 +1,21 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.dto.ReceiptSearchHitDTO;
+
+import java.util.List;
+
+/**
+ * Trigram search across receipts. Relies on the pg_trgm GiST indexes created by
+ * {@link com.example.splitter.service.ReceiptSearchService}.
+ */
+public interface BillsRepoCustom {
+
+    /**
+     * Best match per receipt for the query over item descriptions, store names and
+     * addresses, highest word similarity first. Each field contributes only its closest
+     * few matches per requested hit, so a receipt whose best match ranks below those is
+     * not returned. Must run inside a transaction so the similarity threshold applies to
+     * the search statement.
+     */
+    List<ReceiptSearchHitDTO> search(String query, double threshold, int limit);
+}
@@ -0,0 +1,74 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.dto.ReceiptSearchHitDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Types;
+import java.util.List;
+
+public class BillsRepoImpl implements BillsRepoCustom {
+
+    // Each branch walks its GiST index in word-distance order (col <->> q is q <<-> col with the
+    // indexed column first, which is the form the index can order by) and stops after
+    // :candidates rows; %> keeps the similarity threshold. Only those candidates are merged to
+    // the best hit per receipt, instead of every row above the threshold
+    private static final String SEARCH = """
+            SELECT receipt_id, store_name, date, field, matched, score FROM (
+                SELECT DISTINCT ON (receipt_id) * FROM (
+                    (SELECT b.receipt_id, b.store_name, b.date, 'item' AS field, i.description AS matched,
+                            1 - (i.description <->> :q) AS score
+                     FROM items i JOIN bills b ON b.receipt_id = i.receipt_id
+                     WHERE i.description %> :q
+                     ORDER BY i.description <->> :q
+                     LIMIT :candidates)
+                    UNION ALL
+                    (SELECT b.receipt_id, b.store_name, b.date, 'store', b.store_name,
+                            1 - (b.store_name <->> :q)
+                     FROM bills b
+                     WHERE b.store_name %> :q
+                     ORDER BY b.store_name <->> :q
+                     LIMIT :candidates)
+                    UNION ALL
+                    (SELECT b.receipt_id, b.store_name, b.date, 'address', b.store_address,
+                            1 - (b.store_address <->> :q)
+                     FROM bills b
+                     WHERE b.store_address %> :q
+                     ORDER BY b.store_address <->> :q
+                     LIMIT :candidates)
+                ) hits
+                ORDER BY receipt_id, score DESC
+            ) best
+            ORDER BY score DESC, receipt_id DESC
+            LIMIT :limit
+            """;
+
+    // Rows taken from each branch per requested hit; one receipt can match with several items
+    private static final int CANDIDATES_PER_HIT = 4;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Override
+    public List<ReceiptSearchHitDTO> search(String query, double threshold, int limit) {
+        // Transaction-local, so pooled connections keep the default threshold
+        jdbc.queryForObject("SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)",
+                new MapSqlParameterSource("threshold", Double.toString(threshold)), String.class);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", query, Types.VARCHAR)
+                .addValue("limit", limit, Types.INTEGER)
+                .addValue("candidates", limit * CANDIDATES_PER_HIT, Types.INTEGER);
+        return jdbc.query(SEARCH, params, (rs, rowNum) -> {
+            ReceiptSearchHitDTO hit = new ReceiptSearchHitDTO();
+            hit.setReceiptId(rs.getLong("receipt_id"));
+            hit.setStoreName(rs.getString("store_name"));
+            hit.setDate(rs.getString("date"));
+            hit.setField(rs.getString("field"));
+            hit.setMatched(rs.getString("matched"));
+            hit.setScore(rs.getDouble("score"));
+            return hit;
+        });
+    }
+}
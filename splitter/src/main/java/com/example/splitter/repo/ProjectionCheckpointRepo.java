@@ -0,0 +1,9 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.ProjectionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProjectionCheckpointRepo extends JpaRepository<ProjectionCheckpoint, String> {
+}
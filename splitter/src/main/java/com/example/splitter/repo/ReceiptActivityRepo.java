@@ -0,0 +1,9 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.ReceiptActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReceiptActivityRepo extends JpaRepository<ReceiptActivity, Long> {
+}
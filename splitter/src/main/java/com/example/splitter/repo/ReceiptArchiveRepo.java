@@ -0,0 +1,18 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.ReceiptArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReceiptArchiveRepo extends JpaRepository<ReceiptArchive, Long> {
+
+    // Which of the given stored originals an archived receipt still points at
+    @Query("SELECT DISTINCT a.imageId FROM ReceiptArchive a WHERE a.imageId IN :imageIds")
+    List<String> findReferencedImageIds(@Param("imageIds") Collection<String> imageIds);
+}
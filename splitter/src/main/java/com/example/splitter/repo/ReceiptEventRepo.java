@@ -0,0 +1,31 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.ReceiptEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReceiptEventRepo extends JpaRepository<ReceiptEvent, Long> {
+
+    List<ReceiptEvent> findByReceiptIdOrderByIdAsc(Long receiptId);
+
+    /**
+     * Events after the (txid, id) position written by transactions older than every one
+     * still running. Such events are final: no event can later appear before them.
+     */
+    @Query(value = "SELECT * FROM receipt_events WHERE (txid, id) > (:txid, :id) " +
+            "AND txid < txid_snapshot_xmin(txid_current_snapshot()) ORDER BY txid, id LIMIT :limit", nativeQuery = true)
+    List<ReceiptEvent> findSettledAfter(@Param("txid") long txid, @Param("id") long id, @Param("limit") int limit);
+
+    @Query("SELECT e.txid FROM ReceiptEvent e WHERE e.id = :id")
+    Optional<Long> findTxidById(@Param("id") Long id);
+
+    /** Oldest transaction still running; every event with a lower txid is already visible. */
+    @Query(value = "SELECT txid_snapshot_xmin(txid_current_snapshot())", nativeQuery = true)
+    long findSettledTxidHorizon();
+}
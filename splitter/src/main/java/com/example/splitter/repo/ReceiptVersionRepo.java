@@ -0,0 +1,23 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.ReceiptVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReceiptVersionRepo extends JpaRepository<ReceiptVersion, Long> {
+
+    // Single statement so concurrent writers to one receipt serialize on the row, not on a read-modify-write
+    @Modifying
+    @Query(value = "INSERT INTO receipt_versions (receipt_id, version) VALUES (:receiptId, 1) " +
+            "ON CONFLICT (receipt_id) DO UPDATE SET version = receipt_versions.version + 1", nativeQuery = true)
+    void bump(@Param("receiptId") Long receiptId);
+
+    @Query("SELECT v.version FROM ReceiptVersion v WHERE v.receiptId = :receiptId")
+    Optional<Long> findVersion(@Param("receiptId") Long receiptId);
+}
@@ -0,0 +1,51 @@
+package com.example.splitter.repo;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+
+/**
+ * Streaming reads for bulk settlement. Rows are handed to a callback as the driver
+ * fetches them, so a chunk of receipts never sits in memory twice. The Postgres driver
+ * only honours the fetch size inside a transaction.
+ */
+@Repository
+public class SettlementRepo {
+
+    private static final int FETCH_SIZE = 5000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private NamedParameterJdbcTemplate jdbc;
+
+    // Own template so the fetch size does not leak into the shared one
+    @PostConstruct
+    void init() {
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(FETCH_SIZE);
+        jdbc = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /** Rows of receipt_id, sub_total, tax_total. */
+    public void forEachBill(Collection<Long> receiptIds, RowCallbackHandler handler) {
+        stream("SELECT receipt_id, sub_total, tax_total FROM bills WHERE receipt_id IN (:ids)", receiptIds, handler);
+    }
+
+    /** Rows of receipt_id, user_id, cost, grouped by receipt. */
+    public void forEachShare(Collection<Long> receiptIds, RowCallbackHandler handler) {
+        stream("SELECT receipt_id, user_id, cost FROM share WHERE receipt_id IN (:ids) ORDER BY receipt_id, id",
+                receiptIds, handler);
+    }
+
+    private void stream(String sql, Collection<Long> receiptIds, RowCallbackHandler handler) {
+        jdbc.query(sql, new MapSqlParameterSource("ids", receiptIds), handler);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.StoreSpendContribution;
+import com.example.splitter.model.UserSpendContribution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based maintenance and range queries for the spend rollups. Rollup rows are
+ * adjusted with INSERT ... ON CONFLICT DO UPDATE, always in key order, so concurrent
+ * backfill workers touching the same day lock rows in the same order and never
+ * deadlock. All writes join the caller's transaction.
+ */
+@Repository
+public class SpendRollupRepo {
+
+    private static final String USER_ROLLUP_DELTA = """
+            INSERT INTO user_spend_daily (user_name, spend_date, amount, receipts)
+            SELECT user_name, spend_date, :sign * SUM(amount), :sign * COUNT(DISTINCT receipt_id)
+            FROM user_spend_contributions
+            WHERE receipt_id IN (:ids) AND spend_date IS NOT NULL
+            GROUP BY user_name, spend_date
+            ORDER BY user_name, spend_date
+            ON CONFLICT (user_name, spend_date) DO UPDATE
+            SET amount = user_spend_daily.amount + EXCLUDED.amount,
+                receipts = user_spend_daily.receipts + EXCLUDED.receipts
+            """;
+
+    private static final String STORE_ROLLUP_DELTA = """
+            INSERT INTO store_spend_daily (store_name, spend_date, amount, receipts)
+            SELECT store_name, spend_date, :sign * SUM(amount), :sign * COUNT(*)
+            FROM store_spend_contributions
+            WHERE receipt_id IN (:ids) AND spend_date IS NOT NULL
+            GROUP BY store_name, spend_date
+            ORDER BY store_name, spend_date
+            ON CONFLICT (store_name, spend_date) DO UPDATE
+            SET amount = store_spend_daily.amount + EXCLUDED.amount,
+                receipts = store_spend_daily.receipts + EXCLUDED.receipts
+            """;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Replaces what the given receipts contribute to the rollups: their previous
+     * contributions are subtracted, the new ones stored and added.
+     */
+    public void replaceContributions(Collection<Long> receiptIds, List<UserSpendContribution> users,
+                                     List<StoreSpendContribution> stores) {
+        if (receiptIds.isEmpty()) {
+            return;
+        }
+        applyDelta(receiptIds, -1);
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", receiptIds);
+        jdbc.update("DELETE FROM user_spend_contributions WHERE receipt_id IN (:ids)", ids);
+        jdbc.update("DELETE FROM store_spend_contributions WHERE receipt_id IN (:ids)", ids);
+
+        if (!users.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO user_spend_contributions (user_id, receipt_id, user_name, spend_date, amount) "
+                            + "VALUES (:userId, :receiptId, :userName, :spendDate, :amount)",
+                    users.stream().map(user -> (SqlParameterSource) new MapSqlParameterSource()
+                            .addValue("userId", user.getUserId(), Types.BIGINT)
+                            .addValue("receiptId", user.getReceiptId(), Types.BIGINT)
+                            .addValue("userName", user.getUserName(), Types.VARCHAR)
+                            .addValue("spendDate", toSqlDate(user.getSpendDate()), Types.DATE)
+                            .addValue("amount", user.getAmount(), Types.DOUBLE)).toArray(SqlParameterSource[]::new));
+        }
+        if (!stores.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO store_spend_contributions (receipt_id, store_name, spend_date, amount) "
+                            + "VALUES (:receiptId, :storeName, :spendDate, :amount)",
+                    stores.stream().map(store -> (SqlParameterSource) new MapSqlParameterSource()
+                            .addValue("receiptId", store.getReceiptId(), Types.BIGINT)
+                            .addValue("storeName", store.getStoreName(), Types.VARCHAR)
+                            .addValue("spendDate", toSqlDate(store.getSpendDate()), Types.DATE)
+                            .addValue("amount", store.getAmount(), Types.DOUBLE)).toArray(SqlParameterSource[]::new));
+        }
+        applyDelta(receiptIds, 1);
+    }
+
+    /** Bill header rows needed to compute contributions, keyed by receipt id. */
+    public Map<Long, Map<String, Object>> findBills(Collection<Long> receiptIds) {
+        Map<Long, Map<String, Object>> bills = new LinkedHashMap<>();
+        jdbc.query("SELECT receipt_id, store_name, date, sub_total, tax_total, total FROM bills WHERE receipt_id IN (:ids)",
+                new MapSqlParameterSource("ids", receiptIds), rs -> {
+                    Map<String, Object> bill = new LinkedHashMap<>();
+                    bill.put("storeName", rs.getString("store_name"));
+                    bill.put("date", rs.getString("date"));
+                    bill.put("subTotal", rs.getDouble("sub_total"));
+                    bill.put("taxTotal", rs.getDouble("tax_total"));
+                    bill.put("total", rs.getDouble("total"));
+                    bills.put(rs.getLong("receipt_id"), bill);
+                });
+        return bills;
+    }
+
+    /** Each sharing user's summed item cost: rows of receipt_id, user_id, name, subtotal. */
+    public List<Map<String, Object>> findUserSubtotals(Collection<Long> receiptIds) {
+        return jdbc.queryForList("""
+                SELECT s.receipt_id, s.user_id, u.name, SUM(s.cost) AS subtotal
+                FROM share s LEFT JOIN users u ON u.user_id = s.user_id
+                WHERE s.receipt_id IN (:ids)
+                GROUP BY s.receipt_id, s.user_id, u.name
+                """, new MapSqlParameterSource("ids", receiptIds));
+    }
+
+    public List<Long> findReceiptIdsAfter(long afterReceiptId, int limit) {
+        return jdbc.queryForList("SELECT receipt_id FROM bills WHERE receipt_id > :after ORDER BY receipt_id LIMIT :limit",
+                new MapSqlParameterSource().addValue("after", afterReceiptId).addValue("limit", limit), Long.class);
+    }
+
+    /**
+     * Clears the rollups except what archived receipts contribute: their rows are gone
+     * from the tables, so a backfill could not bring them back. The daily rollups are
+     * re-aggregated from the contributions that are kept.
+     */
+    public void deleteAllButArchived() {
+        JdbcTemplate jdbcTemplate = jdbc.getJdbcTemplate();
+        jdbcTemplate.execute("DELETE FROM user_spend_contributions c WHERE NOT EXISTS "
+                + "(SELECT 1 FROM receipt_archive a WHERE a.receipt_id = c.receipt_id)");
+        jdbcTemplate.execute("DELETE FROM store_spend_contributions c WHERE NOT EXISTS "
+                + "(SELECT 1 FROM receipt_archive a WHERE a.receipt_id = c.receipt_id)");
+        jdbcTemplate.execute("TRUNCATE user_spend_daily, store_spend_daily");
+        jdbcTemplate.execute("""
+                INSERT INTO user_spend_daily (user_name, spend_date, amount, receipts)
+                SELECT user_name, spend_date, SUM(amount), COUNT(DISTINCT receipt_id)
+                FROM user_spend_contributions
+                WHERE spend_date IS NOT NULL
+                GROUP BY user_name, spend_date
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO store_spend_daily (store_name, spend_date, amount, receipts)
+                SELECT store_name, spend_date, SUM(amount), COUNT(*)
+                FROM store_spend_contributions
+                WHERE spend_date IS NOT NULL
+                GROUP BY store_name, spend_date
+                """);
+    }
+
+    /** Those of the given receipts that have been moved to the cold archive. */
+    public Set<Long> findArchived(Collection<Long> receiptIds) {
+        return new HashSet<>(jdbc.queryForList("SELECT receipt_id FROM receipt_archive WHERE receipt_id IN (:ids)",
+                new MapSqlParameterSource("ids", receiptIds), Long.class));
+    }
+
+    /** Spend of one user (or store) per day or month in [from, to], oldest first. */
+    public List<Map<String, Object>> findSeries(String table, String keyColumn, String key,
+                                                LocalDate from, LocalDate to, String granularity) {
+        // table, keyColumn and granularity come from fixed values in AnalyticsService, never from input
+        return jdbc.queryForList("SELECT date_trunc('" + granularity + "', spend_date)::date AS period, "
+                        + "SUM(amount) AS amount, SUM(receipts) AS receipts FROM " + table
+                        + " WHERE " + keyColumn + " = :key AND spend_date BETWEEN :from AND :to AND receipts > 0"
+                        + " GROUP BY period ORDER BY period",
+                new MapSqlParameterSource()
+                        .addValue("key", key, Types.VARCHAR)
+                        .addValue("from", toSqlDate(from), Types.DATE)
+                        .addValue("to", toSqlDate(to), Types.DATE));
+    }
+
+    /** Stores ranked by total spend in [from, to]. */
+    public List<Map<String, Object>> findTopStores(LocalDate from, LocalDate to, int limit) {
+        return jdbc.queryForList("""
+                SELECT store_name, SUM(amount) AS amount, SUM(receipts) AS receipts
+                FROM store_spend_daily
+                WHERE spend_date BETWEEN :from AND :to AND receipts > 0
+                GROUP BY store_name
+                ORDER BY amount DESC
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                .addValue("from", toSqlDate(from), Types.DATE)
+                .addValue("to", toSqlDate(to), Types.DATE)
+                .addValue("limit", limit, Types.INTEGER));
+    }
+
+    private void applyDelta(Collection<Long> receiptIds, int sign) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", receiptIds)
+                .addValue("sign", sign, Types.INTEGER);
+        jdbc.update(USER_ROLLUP_DELTA, params);
+        jdbc.update(STORE_ROLLUP_DELTA, params);
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+}
@@ -15,7 +15,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UsersRepo extends JpaRepository<Users, String> {
+public interface UsersRepo extends JpaRepository<Users, String>, UsersRepoCustom {
     List<Users> findByReceiptId(Long receiptId);
 
     Optional<Users> findByReceiptIdAndUserId(Long receiptId, Long userId);
@@ -0,0 +1,32 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.Users;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based operations on users that Spring Data would otherwise run row by row.
+ * All of them join the caller's transaction.
+ */
+public interface UsersRepoCustom {
+
+    /** A row written by {@link #upsertAll}, keyed by the ids it was written under. */
+    record UpsertedUser(Long userId, Long receiptId, boolean inserted) {
+    }
+
+    /** Draws count fresh ids from the users id sequence. */
+    List<Long> allocateIds(int count);
+
+    /**
+     * Inserts or updates all rows in one INSERT ... ON CONFLICT statement. A row whose
+     * userId exists on the same receipt is updated; a row without a userId, or with one
+     * the table does not hold, is inserted under its freshIds entry. A userId owned by
+     * another receipt is left untouched and missing from the result.
+     */
+    List<UpsertedUser> upsertAll(List<Users> users, List<Long> freshIds);
+
+    /** Deletes users of the receipts that are not in keep; returns userId to receiptId of each removed row. */
+    Map<Long, Long> deleteAllExcept(Collection<Long> receiptIds, Collection<Long> keep);
+}
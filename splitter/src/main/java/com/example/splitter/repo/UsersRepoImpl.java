@@ -0,0 +1,79 @@
+package com.example.splitter.repo;
+
+import com.example.splitter.model.Users;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UsersRepoImpl implements UsersRepoCustom {
+
+    private static final String ID_SEQUENCE = "pg_get_serial_sequence('users', 'user_id')";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbc.queryForList("SELECT nextval(" + ID_SEQUENCE + ") FROM generate_series(1, :count)",
+                new MapSqlParameterSource("count", count), Long.class);
+    }
+
+    @Override
+    public List<UpsertedUser> upsertAll(List<Users> users, List<Long> freshIds) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder values = new StringBuilder();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < users.size(); i++) {
+            Users user = users.get(i);
+            values.append(i == 0 ? "" : ", ")
+                    .append("(:u").append(i).append(", :f").append(i).append(", :r").append(i)
+                    .append(", :n").append(i).append(", :a").append(i).append(")");
+            params.addValue("u" + i, user.getUserId(), Types.BIGINT);
+            params.addValue("f" + i, freshIds.get(i), Types.BIGINT);
+            params.addValue("r" + i, user.getReceiptId(), Types.BIGINT);
+            params.addValue("n" + i, user.getName(), Types.VARCHAR);
+            params.addValue("a" + i, user.getAmount(), Types.DOUBLE);
+        }
+        // Unknown ids take the preallocated one rather than an id the sequence may hand out later.
+        // The ON CONFLICT arbiter makes the existence check and the write atomic per row.
+        String sql = "INSERT INTO users (user_id, receipt_id, name, amount) "
+                + "SELECT CASE WHEN EXISTS (SELECT 1 FROM users u WHERE u.user_id = v.user_id) "
+                + "THEN v.user_id ELSE v.fresh_id END, v.receipt_id, v.name, v.amount "
+                + "FROM (VALUES " + values + ") AS v(user_id, fresh_id, receipt_id, name, amount) "
+                + "ON CONFLICT (user_id) DO UPDATE SET name = EXCLUDED.name, amount = EXCLUDED.amount "
+                + "WHERE users.receipt_id = EXCLUDED.receipt_id "
+                + "RETURNING user_id, receipt_id, (xmax = 0) AS inserted";
+        return jdbc.query(sql, params, (rs, rowNum) ->
+                new UpsertedUser(rs.getLong("user_id"), rs.getLong("receipt_id"), rs.getBoolean("inserted")));
+    }
+
+    @Override
+    public Map<Long, Long> deleteAllExcept(Collection<Long> receiptIds, Collection<Long> keep) {
+        Map<Long, Long> removed = new HashMap<>();
+        if (receiptIds.isEmpty()) {
+            return removed;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("receiptIds", receiptIds);
+        String sql = "DELETE FROM users WHERE receipt_id IN (:receiptIds)";
+        // Empty IN lists are invalid SQL
+        if (!keep.isEmpty()) {
+            sql += " AND user_id NOT IN (:keep)";
+            params.addValue("keep", keep);
+        }
+        jdbc.query(sql + " RETURNING user_id, receipt_id", params, rs -> {
+            removed.put(rs.getLong("user_id"), rs.getLong("receipt_id"));
+        });
+        return removed;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.splitter.service;
+
+import com.example.splitter.repo.SpendRollupRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/** Spend over time, answered from the daily rollups kept by {@link SpendRollupProjector}. */
+@Service
+public class AnalyticsService {
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private SpendRollupRepo spendRollupRepo;
+
+    @Autowired
+    private ProjectionRunner projectionRunner;
+
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getUserSpend(String name, LocalDate from, LocalDate to, String granularity) {
+        return series("user_spend_daily", "user_name", name, from, to, granularity);
+    }
+
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getStoreSpend(String store, LocalDate from, LocalDate to, String granularity) {
+        return series("store_spend_daily", "store_name", store, from, to, granularity);
+    }
+
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getTopStores(LocalDate from, LocalDate to, int limit) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+        }
+        return ResponseEntity.ok(spendRollupRepo.findTopStores(from, to, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+
+    /** Starts rebuilding the rollups from the current tables in parallel; 202 while it runs. */
+    public ResponseEntity<Map> backfill() {
+        return projectionRunner.rebuild("spend-rollups");
+    }
+
+    private ResponseEntity<?> series(String table, String keyColumn, String key, LocalDate from, LocalDate to,
+                                     String granularity) {
+        if (!"day".equals(granularity) && !"month".equals(granularity)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "granularity must be day or month"));
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+        }
+        List<Map<String, Object>> series = spendRollupRepo.findSeries(table, keyColumn, key, from, to, granularity);
+        return ResponseEntity.ok(series);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.splitter.service;
+
+/**
+ * A projector whose read model can be rebuilt straight from the current tables, which
+ * is much faster than replaying the whole journal. {@link ProjectionRunner#rebuild}
+ * uses it instead of a replay and then applies only the events recorded since.
+ */
+public interface BackfillingProjector extends Projector {
+
+    /**
+     * Rebuilds the (already reset) read model from the current tables and returns how
+     * many receipts were processed. Manages its own transactions.
+     */
+    long backfill();
+}
@@ -0,0 +1,57 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ReceiptEvent;
+import com.example.splitter.repo.ReceiptEventRepo;
+import com.example.splitter.repo.ReceiptVersionRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Appends mutations to the receipt_events journal and bumps the receipt's version.
+ * Must run inside the mutating transaction so both commit or roll back together with
+ * the change.
+ */
+@Component
+public class EventJournal {
+
+    public static final String RECEIPT_ADDED = "RECEIPT_ADDED";
+    public static final String RECEIPT_UPDATED = "RECEIPT_UPDATED";
+    public static final String USERS_UPSERTED = "USERS_UPSERTED";
+    public static final String USER_DELETED = "USER_DELETED";
+    public static final String SHARES_UPDATED = "SHARES_UPDATED";
+
+    @Autowired
+    private ReceiptEventRepo receiptEventRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecentWrites recentWrites;
+
+    @Autowired
+    private ReceiptVersionRepo receiptVersionRepo;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Long receiptId, String type, Object payload) {
+        ReceiptEvent event = new ReceiptEvent();
+        event.setReceiptId(receiptId);
+        event.setType(type);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + type + " event", e);
+        }
+        event.setCreatedAt(Instant.now());
+        receiptEventRepo.save(event);
+        receiptVersionRepo.bump(receiptId);
+        // Every mutation passes through here, so this is where reads get pinned to the primary
+        recentWrites.markWritten(receiptId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.splitter.service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * 64-bit difference hash (dHash). The image is shrunk to 9x8 greyscale and each bit
+ * records whether a pixel is brighter than its right-hand neighbour, so re-shot,
+ * re-compressed or slightly rescaled photos of one receipt land a few bits apart.
+ */
+public final class ImageHasher {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private ImageHasher() {
+    }
+
+    /** Returns the dHash of the image, or null when ImageIO cannot decode it. */
+    public static Long dHash(byte[] image) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(image));
+        if (source == null) {
+            return null;
+        }
+        BufferedImage small = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = small.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, WIDTH, HEIGHT, null);
+        g.dispose();
+
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static String toHex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    /** Parses a hash produced by {@link #toHex}; null for blank or malformed input. */
+    public static Long fromHex(String hex) {
+        if (hex == null || hex.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseUnsignedLong(hex.trim(), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
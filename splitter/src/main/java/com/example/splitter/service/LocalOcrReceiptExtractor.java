@@ -0,0 +1,88 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.Word;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Offline tier: Tesseract (via Tess4J) plus {@link ReceiptTextParser}. Only answers when
+ * the engine is confident and the parsed receipt reconciles; anything else is left to
+ * the OpenAI tier. Needs the native tesseract library and tessdata on the host, so it
+ * is disabled unless ocr.local.enabled=true.
+ */
+@Component
+public class LocalOcrReceiptExtractor implements ReceiptExtractor {
+
+    // Page segmentation mode 4: a single column of text of variable sizes
+    private static final int PSM_SINGLE_COLUMN = 4;
+
+    @Value("${ocr.local.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ocr.local.datapath:/usr/share/tesseract-ocr/5/tessdata}")
+    private String datapath;
+
+    @Value("${ocr.local.language:eng}")
+    private String language;
+
+    @Value("${ocr.local.min-confidence:80}")
+    private float minConfidence;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public Optional<BillsDTO> extract(byte[] image, String contentType) throws Exception {
+        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(image));
+        if (bufferedImage == null) {
+            // Format ImageIO cannot decode (e.g. HEIC); let the remote tier handle it
+            return Optional.empty();
+        }
+
+        // Tesseract handles are not thread-safe, so each request gets its own
+        Tesseract tesseract = new Tesseract();
+        tesseract.setDatapath(datapath);
+        tesseract.setLanguage(language);
+        tesseract.setPageSegMode(PSM_SINGLE_COLUMN);
+
+        List<Word> textLines = tesseract.getWords(List.of(bufferedImage), ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
+        if (textLines.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<String> lines = new ArrayList<>(textLines.size());
+        float confidenceSum = 0;
+        for (Word line : textLines) {
+            lines.add(line.getText().trim());
+            confidenceSum += line.getConfidence();
+        }
+        float meanConfidence = confidenceSum / textLines.size();
+        if (meanConfidence < minConfidence) {
+            System.out.println("Local OCR confidence " + meanConfidence + " below " + minConfidence + ", escalating");
+            return Optional.empty();
+        }
+
+        BillsDTO bill = ReceiptTextParser.parse(lines);
+        if (!ReceiptReconciler.isConsistent(bill)) {
+            System.out.println("Local OCR result does not reconcile, escalating");
+            return Optional.empty();
+        }
+        return Optional.of(bill);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.splitter.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for /ocr/extract. A request must first take a token from its
+ * client's bucket, then a slot under the global concurrency limit; when every slot is
+ * busy it may wait in a bounded queue. Anything that does not fit is shed so one noisy
+ * client cannot exhaust the OpenAI quota or the request threads. A request shed by the
+ * queue gets its token back.
+ *
+ * All limits can be changed at runtime through the ocradmission actuator endpoint, which
+ * is only served on the loopback-bound management port.
+ */
+@Component
+public class OcrAdmissionControl {
+
+    public enum Outcome { ADMITTED, RATE_LIMITED, QUEUE_FULL, QUEUE_TIMEOUT }
+
+    /** Result of an admission attempt; retryAfterSeconds is only meaningful on rejection. */
+    public record Decision(Outcome outcome, long retryAfterSeconds) {
+        public boolean admitted() {
+            return outcome == Outcome.ADMITTED;
+        }
+    }
+
+    // Immutable bucket state, swapped with CAS so the hot path never takes a lock
+    private record BucketState(double tokens, long refilledAtNanos) {
+    }
+
+    @Value("${ocr.admission.rate-per-second:0.5}")
+    private volatile double ratePerSecond;
+
+    @Value("${ocr.admission.burst:5}")
+    private volatile int burst;
+
+    @Value("${ocr.admission.max-concurrent:8}")
+    private volatile int maxConcurrent;
+
+    @Value("${ocr.admission.max-queue:16}")
+    private volatile int maxQueue;
+
+    @Value("${ocr.admission.max-wait-ms:10000}")
+    private volatile long maxWaitMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, AtomicReference<BucketState>> buckets = new ConcurrentHashMap<>();
+
+    private final ReentrantLock slotLock = new ReentrantLock();
+    private final Condition slotReleased = slotLock.newCondition();
+    private int active;
+    private int waiting;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("ocr.admission.active", this, c -> c.active).register(meterRegistry);
+        Gauge.builder("ocr.admission.waiting", this, c -> c.waiting).register(meterRegistry);
+        Gauge.builder("ocr.admission.clients", buckets, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Tries to admit a request from the given client, blocking for at most the
+     * configured wait when all slots are busy. An admitted request must call
+     * {@link #release()} when it finishes.
+     */
+    public Decision admit(String clientId) throws InterruptedException {
+        long retryAfter = takeToken(clientId);
+        if (retryAfter > 0) {
+            return reject(Outcome.RATE_LIMITED, retryAfter);
+        }
+
+        slotLock.lock();
+        try {
+            if (active < maxConcurrent) {
+                active++;
+                return new Decision(Outcome.ADMITTED, 0);
+            }
+            if (waiting >= maxQueue) {
+                returnToken(clientId);
+                return reject(Outcome.QUEUE_FULL, queueRetryAfter());
+            }
+            waiting++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (active >= maxConcurrent) {
+                    if (remaining <= 0) {
+                        returnToken(clientId);
+                        return reject(Outcome.QUEUE_TIMEOUT, queueRetryAfter());
+                    }
+                    remaining = slotReleased.awaitNanos(remaining);
+                }
+                active++;
+                return new Decision(Outcome.ADMITTED, 0);
+            } finally {
+                waiting--;
+            }
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    public void release() {
+        slotLock.lock();
+        try {
+            active--;
+            slotReleased.signal();
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getLimits() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("ratePerSecond", ratePerSecond);
+        limits.put("burst", burst);
+        limits.put("maxConcurrent", maxConcurrent);
+        limits.put("maxQueue", maxQueue);
+        limits.put("maxWaitMs", maxWaitMs);
+        limits.put("active", active);
+        limits.put("waiting", waiting);
+        return limits;
+    }
+
+    /** Updates any non-null limit; waiting requests see a raised concurrency limit at once. */
+    public void updateLimits(Double ratePerSecond, Integer burst, Integer maxConcurrent, Integer maxQueue, Long maxWaitMs) {
+        if (ratePerSecond != null && ratePerSecond > 0) {
+            this.ratePerSecond = ratePerSecond;
+        }
+        if (burst != null && burst > 0) {
+            this.burst = burst;
+        }
+        if (maxQueue != null && maxQueue >= 0) {
+            this.maxQueue = maxQueue;
+        }
+        if (maxWaitMs != null && maxWaitMs >= 0) {
+            this.maxWaitMs = maxWaitMs;
+        }
+        if (maxConcurrent != null && maxConcurrent > 0) {
+            slotLock.lock();
+            try {
+                this.maxConcurrent = maxConcurrent;
+                slotReleased.signalAll();
+            } finally {
+                slotLock.unlock();
+            }
+        }
+    }
+
+    // Buckets that have refilled completely hold no state worth keeping
+    @Scheduled(fixedDelay = 60_000)
+    void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> refill(entry.getValue().get(), now).tokens() >= burst);
+    }
+
+    /** Takes one token; returns 0 on success or the seconds until a token is available. */
+    private long takeToken(String clientId) {
+        AtomicReference<BucketState> bucket = buckets.computeIfAbsent(clientId,
+                id -> new AtomicReference<>(new BucketState(burst, System.nanoTime())));
+        while (true) {
+            BucketState current = bucket.get();
+            BucketState refilled = refill(current, System.nanoTime());
+            if (refilled.tokens() < 1) {
+                return (long) Math.ceil((1 - refilled.tokens()) / ratePerSecond);
+            }
+            if (bucket.compareAndSet(current, new BucketState(refilled.tokens() - 1, refilled.refilledAtNanos()))) {
+                return 0;
+            }
+        }
+    }
+
+    // A request shed for lack of capacity did no work, so it must not cost the client its quota
+    private void returnToken(String clientId) {
+        AtomicReference<BucketState> bucket = buckets.get(clientId);
+        if (bucket == null) {
+            return;
+        }
+        while (true) {
+            BucketState current = bucket.get();
+            BucketState refilled = refill(current, System.nanoTime());
+            BucketState returned = new BucketState(Math.min(burst, refilled.tokens() + 1), refilled.refilledAtNanos());
+            if (bucket.compareAndSet(current, returned)) {
+                return;
+            }
+        }
+    }
+
+    private BucketState refill(BucketState state, long now) {
+        double elapsedSeconds = (now - state.refilledAtNanos()) / 1e9;
+        double tokens = Math.min(burst, state.tokens() + elapsedSeconds * ratePerSecond);
+        return new BucketState(tokens, now);
+    }
+
+    // Rough time for the queue ahead to drain, never less than a second
+    private long queueRetryAfter() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWaitMs) / 2);
+    }
+
+    private Decision reject(Outcome outcome, long retryAfterSeconds) {
+        meterRegistry.counter("ocr.admission.rejected", "reason", outcome.name().toLowerCase()).increment();
+        return new Decision(outcome, Math.max(1, retryAfterSeconds));
+    }
+}
@@ -1,19 +1,22 @@
 package com.example.splitter.service;
 
 import com.example.splitter.model.dto.BillsDTO;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import com.example.splitter.model.Bills;
 import com.example.splitter.repo.BillsRepo;
@@ -27,100 +30,90 @@ import com.example.splitter.model.dto.ItemsDTO;
 
 @Service
 public class OcrService {
-    @Value("${OPENAI_API_KEY:}")
-    private String openaiApiKey;
+    @Autowired
+    private BillsRepo billsRepo;
+
+    @Autowired
+    private LocalOcrReceiptExtractor localReceiptExtractor;
 
-    @Value("${OPENAI_API_URL:https://api.openai.com/v1/chat/completions}")
-    private String openaiApiUrl;
+    @Autowired
+    private OpenAiReceiptExtractor openAiReceiptExtractor;
 
     @Autowired
-    private BillsRepo billsRepo;
+    private MeterRegistry meterRegistry;
 
-    public ResponseEntity<String> extractTextFromImage(MultipartFile file) {
+    @Autowired
+    private ReceiptHashIndex receiptHashIndex;
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    @Autowired
+    private EventJournal eventJournal;
+
+    @Autowired
+    private ReceiptArchiver receiptArchiver;
+
+    @Value("${ocr.dedup.shortcut-distance:1}")
+    private int shortcutDistance;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("ocr.extractions.local.ratio", this, OcrService::localResolvedRatio)
+                .description("Share of receipts resolved by the local OCR tier")
+                .register(meterRegistry);
+    }
+
+    public ResponseEntity<?> extractTextFromImage(MultipartFile file) {
         // Dummy implementation for illustration purposes
         System.out.println("Received file: " + file.getOriginalFilename());
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("File is empty");
         }
 
-        // Validate API key is set
-        if (openaiApiKey == null || openaiApiKey.trim().isEmpty()) {
-            System.err.println("ERROR: OPENAI_API_KEY environment variable is not set");
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("OpenAI API key is not configured. Please set the OPENAI_API_KEY environment variable. " +
-                          "For Docker: Ensure it's in your .env file. " +
-                          "For local development: Set it as an environment variable.");
-        }
-
         try {
-            // Prepare the request body for OpenAI API
-            String base64Image = Base64.getEncoder().encodeToString(file.getBytes());
-
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "gpt-4o");
-
-            List<Map<String, Object>> messages = new ArrayList<>();
-            Map<String, Object> systemMsg = new HashMap<>();
-            systemMsg.put("role", "system");
-            systemMsg.put("content", "You are a strict receipt-to-JSON extractor. Read the provided image and output ONLY one JSON object that matches the exact schema below, The prices have to be accurate, check them rigourously. \n" +
-                    "ABSOLUTE RULES:\n" +
-                    "- Do not add, rename, or remove keys from the schema. No extra metadata, notes, or null fields.\n" +
-                    "- Do not hallucinate values. Only use what is clearly printed on the receipt.\n" +
-                    "- some bills have dicounts on the below line with the discount followed by '-' symbol,subtract this from the previous entries price to get the correct price\n" +
-                    "- If a value is missing/unclear, use an empty string for text fields and 0 for numbers.\n" +
-                    "- Prices are decimals without currency symbols. Date = YYYY-MM-DD, time = HH:MM (24h).\n" +
-                    "- Items: if quantity is printed, multiply unit price × quantity to set \"price\"; if not printed, assume quantity 1.\n" +
-                    "- Trim whitespace and preserve on-receipt wording for item descriptions where legible.\n" +
-                    "- Return raw JSON only (no markdown, no commentary).\n" +
-                    "\n" +
-                    "SCHEMA:\n" +
-                    "{\n" +
-                    "  \"storeName\": \"string\",\n" +
-                    "  \"storeAddress\": \"string\",\n" +
-                    "  \"date\": \"string\",\n" +
-                    "  \"time\": \"string\",\n" +
-                    "  \"items\": [\n" +
-                    "    { \"description\": \"string\", \"price\": \"number\" }\n" +
-                    "  ],\n" +
-                    "  \"subTotal\": \"number\",\n" +
-                    "  \"taxTotal\": \"number\",\n" +
-                    "  \"total\": \"number\"\n" +
-                    "}\n");
-            Map<String, Object> userMsg = new HashMap<>();
-            userMsg.put("role", "user");
-            List<Map<String, Object>> content = new ArrayList<>();
-            content.add(Map.of("type", "text", "text", "Extract all information from this receipt image."));
-            content.add(Map.of("type", "image_url", "image_url", Map.of("url", "data:" + file.getContentType() + ";base64," + base64Image)));
-            userMsg.put("content", content);
-
-            messages.add(systemMsg);
-            messages.add(userMsg);
-
-            payload.put("messages", messages);
-            payload.put("max_tokens", 1024);
-
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(openaiApiKey);
-
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(payload, headers);
-
-            RestTemplate restTemplate = new RestTemplate();
-            
-            try {
-                ResponseEntity<String> response = restTemplate.postForEntity(openaiApiUrl, requestEntity, String.class);
+            byte[] image = file.getBytes();
+            // Keep the original so it can be re-extracted later without a new upload
+            String imageId = storeImage(image);
+
+            // The same image, or a re-shot of it within a few bits, was extracted before,
+            // so no OCR is needed at all; the user can still save it as a new receipt
+            Long imageHash = perceptualHash(image);
+            Optional<Bills> prior = findPriorUpload(imageHash, imageId);
+            if (prior.isPresent()) {
+                meterRegistry.counter("ocr.extractions", "tier", "duplicate").increment();
+                BillsDTO receipt = toDto(prior.get());
+                tagSource(receipt, imageHash, imageId);
+                receipt.setDuplicateOf(prior.get().getReceiptId());
+                return ResponseEntity.ok()
+                        .body(receipt);
+            }
 
-                if (response.getStatusCode() != HttpStatus.OK) {
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("OpenAI API error");
-                }
-                else {
-                    JsonNode receiptJson = extractReceiptJson(response.getBody());
-                    ObjectMapper mapper = new ObjectMapper();
-                    String prettyJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(receiptJson);
-                    return ResponseEntity.ok(prettyJson);
-//                return ResponseEntity.ok(response.getBody());
-                }
+            Optional<BillsDTO> local = tryLocalTier(image, file.getContentType());
+            if (local.isPresent()) {
+                tagSource(local.get(), imageHash, imageId);
+                flagDuplicate(local.get(), imageHash, null);
+                return ResponseEntity.ok()
+                        .body(local.get());
+            }
+
+            // Validate API key is set
+            if (!openAiReceiptExtractor.isConfigured()) {
+                System.err.println("ERROR: OPENAI_API_KEY environment variable is not set");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("OpenAI API key is not configured. Please set the OPENAI_API_KEY environment variable. " +
+                              "For Docker: Ensure it's in your .env file. " +
+                              "For local development: Set it as an environment variable.");
+            }
+
+            try {
+                BillsDTO receipt = openAiReceiptExtractor.extract(image, file.getContentType()).orElseThrow();
+                recordExtraction(openAiReceiptExtractor);
+                tagSource(receipt, imageHash, imageId);
+                flagDuplicate(receipt, imageHash, null);
+                // Returned as an object so the message converter streams it straight to the response
+                return ResponseEntity.ok()
+                        .body(receipt);
             } catch (HttpClientErrorException e) {
                 // Handle 4xx errors (401 Unauthorized, 400 Bad Request, etc.)
                 System.err.println("OpenAI API client error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
@@ -146,24 +139,128 @@ public class OcrService {
         }
     }
 
-    public static JsonNode extractReceiptJson(String responseJson) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode root = mapper.readTree(responseJson);
-        String content = root.path("choices").get(0).path("message").path("content").asText();
+    /**
+     * Runs the extraction tiers on an image without the upload-only steps (duplicate
+     * short-circuit, storing the original). Used to re-process stored images.
+     */
+    public BillsDTO extractWithTiers(byte[] image, String contentType) throws Exception {
+        Optional<BillsDTO> local = tryLocalTier(image, contentType);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        if (!openAiReceiptExtractor.isConfigured()) {
+            throw new IllegalStateException("OpenAI API key is not configured");
+        }
+        BillsDTO receipt = openAiReceiptExtractor.extract(image, contentType).orElseThrow();
+        recordExtraction(openAiReceiptExtractor);
+        return receipt;
+    }
 
-        // Remove code block markers if present
-        if (content.startsWith("```json")) {
-            content = content.substring(7);
+    // Free, offline tier first; it only answers when it can vouch for the result
+    private Optional<BillsDTO> tryLocalTier(byte[] image, String contentType) {
+        if (!localReceiptExtractor.isEnabled()) {
+            return Optional.empty();
         }
-        if (content.endsWith("```")) {
-            content = content.substring(0, content.length() - 3);
+        try {
+            Optional<BillsDTO> local = localReceiptExtractor.extract(image, contentType);
+            if (local.isPresent()) {
+                recordExtraction(localReceiptExtractor);
+            }
+            return local;
+        } catch (Exception | LinkageError e) {
+            // Missing native library or tessdata must not take the endpoint down
+            System.err.println("Local OCR failed, escalating to OpenAI: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String storeImage(byte[] image) {
+        try {
+            return receiptImageStore.store(image);
+        } catch (IOException e) {
+            System.err.println("Could not store uploaded image: " + e.getMessage());
+            return null;
         }
-        content = content.trim();
+    }
 
-        // Parse the inner JSON
-        return mapper.readTree(content);
+    /**
+     * Stored receipt for the same upload: identical bytes, or a perceptual hash within
+     * ocr.dedup.shortcut-distance. That distance is kept tighter than the one used to flag
+     * duplicates after extraction, since here there are no fields yet to confirm the match.
+     */
+    private Optional<Bills> findPriorUpload(Long imageHash, String imageId) {
+        Optional<Bills> prior = imageId == null
+                ? Optional.empty()
+                : billsRepo.findFirstByImageIdOrderByReceiptIdAsc(imageId);
+        if (prior.isEmpty() && imageHash != null) {
+            OptionalLong nearest = receiptHashIndex.findNearest(imageHash, shortcutDistance);
+            if (nearest.isPresent()) {
+                prior = billsRepo.findByReceiptId(nearest.getAsLong());
+            }
+        }
+        return prior;
     }
 
+    private static void tagSource(BillsDTO receipt, Long imageHash, String imageId) {
+        if (imageHash != null) {
+            receipt.setImageHash(ImageHasher.toHex(imageHash));
+        }
+        receipt.setImageId(imageId);
+    }
+
+    /**
+     * Marks the receipt as a duplicate of a stored one that came from the same image, or
+     * from a near-identical image and has the same store, date and total. A close hash
+     * alone is not enough: two receipts from one till look alike at 9x8 pixels.
+     */
+    private void flagDuplicate(BillsDTO receipt, Long imageHash, String imageId) {
+        Optional<Bills> prior = imageId == null
+                ? Optional.empty()
+                : billsRepo.findFirstByImageIdOrderByReceiptIdAsc(imageId);
+        if (prior.isEmpty() && imageHash != null) {
+            OptionalLong nearest = receiptHashIndex.findNearest(imageHash);
+            if (nearest.isPresent()) {
+                prior = billsRepo.findByReceiptId(nearest.getAsLong())
+                        .filter(bills -> sameReceipt(receipt, bills));
+            }
+        }
+        prior.ifPresent(bills -> receipt.setDuplicateOf(bills.getReceiptId()));
+    }
+
+    private static boolean sameReceipt(BillsDTO receipt, Bills bills) {
+        return normalize(receipt.getStoreName()).equals(normalize(bills.getStoreName()))
+                && normalize(receipt.getDate()).equals(normalize(bills.getDate()))
+                && Math.abs(receipt.getTotal() - bills.getTotal()) < 0.005;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private Long perceptualHash(byte[] image) {
+        try {
+            return ImageHasher.dHash(image);
+        } catch (IOException e) {
+            System.err.println("Could not hash uploaded image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void recordExtraction(ReceiptExtractor tier) {
+        meterRegistry.counter("ocr.extractions", "tier", tier.name()).increment();
+    }
+
+    /**
+     * Share of extractions answered by the local tier, exported as the
+     * ocr.extractions.local.ratio gauge.
+     */
+    private double localResolvedRatio() {
+        double local = meterRegistry.counter("ocr.extractions", "tier", localReceiptExtractor.name()).count();
+        double remote = meterRegistry.counter("ocr.extractions", "tier", openAiReceiptExtractor.name()).count();
+        return local + remote == 0 ? 0 : local / (local + remote);
+    }
+
+    @Transactional
     public ResponseEntity<Map> addReceiptToDatabase(BillsDTO json) {
         // Dummy implementation for illustration purposes
         System.out.println("Received JSON: " + json);
@@ -187,10 +284,26 @@ public class OcrService {
         }
         bills.setItems(itemsList);
 
+        // Flag confirmed duplicates but still store the receipt; the user decides
+        Long imageHash = ImageHasher.fromHex(json.getImageHash());
+        bills.setImageHash(imageHash);
+        if (receiptImageStore.exists(json.getImageId())) {
+            bills.setImageId(json.getImageId());
+        }
+        json.setDuplicateOf(null);
+        flagDuplicate(json, imageHash, bills.getImageId());
 
         Bills saved = billsRepo.save(bills);
+        eventJournal.append(saved.getReceiptId(), EventJournal.RECEIPT_ADDED, toDto(saved));
+        if (imageHash != null) {
+            // Takes effect on commit
+            receiptHashIndex.add(imageHash, saved.getReceiptId());
+        }
         Map<String, Object> response = new HashMap<>();
         response.put("id", saved.getReceiptId());
+        if (json.getDuplicateOf() != null) {
+            response.put("duplicateOf", json.getDuplicateOf());
+        }
         return ResponseEntity.ok(response);
 
 //        return ResponseEntity.ok("Receipt added to database. ID: " + saved.getId());
@@ -231,7 +344,9 @@ public class OcrService {
                 }
             }
 
-            Bills saved = billsRepo.save(bills);
+            Bills saved = billsRepo.saveAndFlush(bills);
+            // Flushed first so the journaled items carry their new ids
+            eventJournal.append(saved.getReceiptId(), EventJournal.RECEIPT_UPDATED, toDto(saved));
             Map<String, Object> response = new HashMap<>();
             response.put("id", saved.getReceiptId());
             return ResponseEntity.ok(response);
@@ -241,42 +356,72 @@ public class OcrService {
     }
 
 
-    public ResponseEntity<String> getReceiptFromDatabase(Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getReceiptFromDatabase(Long id) {
         // Dummy implementation for illustration purposes
         System.out.println("Fetching receipt with ID: " + id);
         // Here you would typically fetch the JSON from your database using the provided ID
         Optional<Bills> optionalBills = billsRepo.findByReceiptId(id); // Uncomment and implement repository to fetch from DB
         if (optionalBills.isPresent()) {
-            Bills bills = optionalBills.get();
-            BillsDTO billsDTO = new BillsDTO();
-            billsDTO.setStoreName(bills.getStoreName());
-            billsDTO.setStoreAddress(bills.getStoreAddress());
-            billsDTO.setDate(bills.getDate());
-            billsDTO.setTime(bills.getTime());
-            billsDTO.setSubTotal(bills.getSubTotal());
-            billsDTO.setTaxTotal(bills.getTaxTotal());
-            billsDTO.setTotal(bills.getTotal());
-
-            List<ItemsDTO> itemsDTOList = new ArrayList<>();
-            for (Items item : bills.getItems()) {
-                ItemsDTO itemDTO = new ItemsDTO();
-                itemDTO.setId(item.getId());
-                itemDTO.setDescription(item.getDescription());
-                itemDTO.setPrice(item.getPrice());
-                itemsDTOList.add(itemDTO);
-            }
-            billsDTO.setItems(itemsDTOList);
+            BillsDTO billsDTO = toDto(optionalBills.get());
 
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                String prettyJson = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(billsDTO);
-                return ResponseEntity.ok(prettyJson);
-            } catch (Exception e) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error converting to JSON");
-            }
-        } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Receipt not found");
+            return ResponseEntity.ok()
+                    .body(billsDTO);
         }
+        // Old receipts live in the cold archive rather than the hot tables
+        Optional<BillsDTO> archived = receiptArchiver.findReceipt(id);
+        if (archived.isPresent()) {
+            return ResponseEntity.ok()
+                    .body(archived.get());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Receipt not found");
     }
-}
 
+    // Typed as StreamingResponseBody so Spring writes it asynchronously; errors carry no body
+    @Transactional(readOnly = true)
+    public ResponseEntity<StreamingResponseBody> getReceiptImage(Long id) {
+        Optional<Bills> optionalBills = billsRepo.findByReceiptId(id);
+        if (optionalBills.isEmpty() || !receiptImageStore.exists(optionalBills.get().getImageId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        String imageId = optionalBills.get().getImageId();
+        try {
+            StreamingResponseBody body = out -> receiptImageStore.transferTo(imageId, Channels.newChannel(out));
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(receiptImageStore.contentType(imageId)))
+                    .contentLength(receiptImageStore.size(imageId))
+                    // Content-addressed, so the bytes behind this id never change
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .body(body);
+        } catch (IOException e) {
+            System.err.println("Failed to read receipt image " + imageId + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private BillsDTO toDto(Bills bills) {
+        BillsDTO billsDTO = new BillsDTO();
+        billsDTO.setStoreName(bills.getStoreName());
+        billsDTO.setStoreAddress(bills.getStoreAddress());
+        billsDTO.setDate(bills.getDate());
+        billsDTO.setTime(bills.getTime());
+        billsDTO.setSubTotal(bills.getSubTotal());
+        billsDTO.setTaxTotal(bills.getTaxTotal());
+        billsDTO.setTotal(bills.getTotal());
+
+        List<ItemsDTO> itemsDTOList = new ArrayList<>();
+        for (Items item : bills.getItems()) {
+            ItemsDTO itemDTO = new ItemsDTO();
+            itemDTO.setId(item.getId());
+            itemDTO.setDescription(item.getDescription());
+            itemDTO.setPrice(item.getPrice());
+            itemsDTOList.add(itemDTO);
+        }
+        billsDTO.setItems(itemsDTOList);
+        if (bills.getImageHash() != null) {
+            billsDTO.setImageHash(ImageHasher.toHex(bills.getImageHash()));
+        }
+        billsDTO.setImageId(bills.getImageId());
+        return billsDTO;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Remote tier: sends the image to GPT-4o with a strict JSON-schema response format.
+ * When the result does not reconcile, a text-only follow-up asks for just the
+ * inconsistent fields. Always returns a receipt or throws; 4xx responses surface as
+ * {@link org.springframework.web.client.HttpClientErrorException} so {@link OcrService}
+ * can report authentication problems precisely.
+ */
+@Component
+public class OpenAiReceiptExtractor implements ReceiptExtractor {
+
+    private static final Map<String, Object> RECEIPT_SCHEMA = ReceiptSchema.of(BillsDTO.class);
+
+    @Value("${OPENAI_API_KEY:}")
+    private String openaiApiKey;
+
+    @Value("${OPENAI_API_URL:https://api.openai.com/v1/chat/completions}")
+    private String openaiApiUrl;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ocr.openai.reask-model:gpt-4o-mini}")
+    private String reaskModel;
+
+    @Value("${ocr.openai.max-reasks:1}")
+    private int maxReasks;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    public boolean isConfigured() {
+        return openaiApiKey != null && !openaiApiKey.trim().isEmpty();
+    }
+
+    @Override
+    public String name() {
+        return "openai";
+    }
+
+    @Override
+    public Optional<BillsDTO> extract(byte[] image, String contentType) throws Exception {
+        // Prepare the request body for OpenAI API
+        String base64Image = Base64.getEncoder().encodeToString(image);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", "gpt-4o");
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        Map<String, Object> systemMsg = new HashMap<>();
+        systemMsg.put("role", "system");
+        // The key layout is enforced by response_format, so the prompt only carries the reading rules
+        systemMsg.put("content", "You are a strict receipt-to-JSON extractor. Read the provided image and fill in the receipt schema. The prices have to be accurate, check them rigourously. \n" +
+                "ABSOLUTE RULES:\n" +
+                "- Do not hallucinate values. Only use what is clearly printed on the receipt.\n" +
+                "- some bills have dicounts on the below line with the discount followed by '-' symbol,subtract this from the previous entries price to get the correct price\n" +
+                "- If a value is missing/unclear, use an empty string for text fields and 0 for numbers.\n" +
+                "- Prices are decimals without currency symbols. Date = YYYY-MM-DD, time = HH:MM (24h).\n" +
+                "- Items: if quantity is printed, multiply unit price × quantity to set \"price\"; if not printed, assume quantity 1.\n" +
+                "- Trim whitespace and preserve on-receipt wording for item descriptions where legible.\n");
+        Map<String, Object> userMsg = new HashMap<>();
+        userMsg.put("role", "user");
+        List<Map<String, Object>> content = new ArrayList<>();
+        content.add(Map.of("type", "text", "text", "Extract all information from this receipt image."));
+        content.add(Map.of("type", "image_url", "image_url", Map.of("url", "data:" + contentType + ";base64," + base64Image)));
+        userMsg.put("content", content);
+
+        messages.add(systemMsg);
+        messages.add(userMsg);
+
+        payload.put("messages", messages);
+        payload.put("max_tokens", 1024);
+        payload.put("response_format", jsonSchemaFormat("receipt", RECEIPT_SCHEMA));
+
+        BillsDTO receipt = objectMapper.treeToValue(complete(payload, "extract"), BillsDTO.class);
+
+        // Fix arithmetic mismatches with a cheap text-only follow-up instead of re-sending the image
+        List<String> inconsistent = ReceiptReconciler.inconsistentFields(receipt);
+        for (int attempt = 0; attempt < maxReasks && !inconsistent.isEmpty(); attempt++) {
+            receipt = reask(receipt, inconsistent);
+            inconsistent = ReceiptReconciler.inconsistentFields(receipt);
+        }
+        return Optional.of(receipt);
+    }
+
+    /** Asks for corrected values of just the given fields, then merges them into the receipt. */
+    private BillsDTO reask(BillsDTO receipt, List<String> fields) throws Exception {
+        meterRegistry.counter("ocr.openai.reasks").increment();
+
+        double itemsTotal = receipt.getItems() == null ? 0
+                : receipt.getItems().stream().mapToDouble(ItemsDTO::getPrice).sum();
+        String problem = "The receipt below was extracted from an image but does not add up: " +
+                "items sum to " + itemsTotal + ", subTotal is " + receipt.getSubTotal() +
+                ", subTotal + taxTotal is " + (receipt.getSubTotal() + receipt.getTaxTotal()) +
+                ", total is " + receipt.getTotal() + ".\n" +
+                "Items must sum to subTotal and subTotal + taxTotal must equal total. " +
+                "A discount printed with a trailing '-' belongs to the item above it. " +
+                "Return corrected values for these fields only: " + String.join(", ", fields) + ".\n\n" +
+                objectMapper.writeValueAsString(receipt);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", reaskModel);
+        payload.put("messages", List.of(
+                Map.of("role", "system", "content", "You correct arithmetic errors in receipt data. Change as little as possible."),
+                Map.of("role", "user", "content", problem)));
+        payload.put("max_tokens", 512);
+        payload.put("response_format", jsonSchemaFormat("receipt_fix", ReceiptSchema.of(BillsDTO.class, fields)));
+
+        JsonNode fix = complete(payload, "reask");
+        // Only the requested fields come back; everything else keeps the first-pass value
+        return objectMapper.readerForUpdating(receipt).readValue(fix);
+    }
+
+    private JsonNode complete(Map<String, Object> payload, String call) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(openaiApiKey);
+
+        HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(payload, headers);
+        ResponseEntity<String> response = restTemplate.postForEntity(openaiApiUrl, requestEntity, String.class);
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new IllegalStateException("unexpected status " + response.getStatusCode());
+        }
+
+        JsonNode root = objectMapper.readTree(response.getBody());
+        JsonNode usage = root.path("usage").path("total_tokens");
+        if (usage.isNumber()) {
+            meterRegistry.summary("ocr.openai.tokens", "call", call).record(usage.asDouble());
+        }
+        JsonNode message = root.path("choices").path(0).path("message");
+        if (message.hasNonNull("refusal")) {
+            throw new IllegalStateException("model refused: " + message.path("refusal").asText());
+        }
+        // Strict structured output: content is exactly one schema-conforming JSON object
+        return objectMapper.readTree(message.path("content").asText());
+    }
+
+    private static Map<String, Object> jsonSchemaFormat(String name, Map<String, Object> schema) {
+        return Map.of("type", "json_schema",
+                "json_schema", Map.of("name", name, "strict", true, "schema", schema));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ProjectionCheckpoint;
+import com.example.splitter.model.ReceiptEvent;
+import com.example.splitter.repo.ProjectionCheckpointRepo;
+import com.example.splitter.repo.ReceiptEventRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives every {@link Projector} forward from its checkpoint. Runs on a schedule for
+ * incremental updates; a rebuild resets one projector in the background and replays
+ * the whole journal with large batches, or backfills it from the tables if it is a
+ * {@link BackfillingProjector}.
+ *
+ * Identity ids are handed out before commit, so id order is not visibility order.
+ * Events are therefore read in (txid, id) order and only from transactions older than
+ * the oldest one still running: nothing can commit behind the checkpoint later, and
+ * rolled-back ids simply never show up. A long-running writer holds projections back
+ * until it finishes.
+ */
+@Component
+public class ProjectionRunner {
+
+    @Autowired
+    private List<Projector> projectors;
+
+    @Autowired
+    private ReceiptEventRepo receiptEventRepo;
+
+    @Autowired
+    private ProjectionCheckpointRepo checkpointRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${journal.projection.batch-size:500}")
+    private int batchSize;
+
+    @Value("${journal.projection.rebuild-batch-size:5000}")
+    private int rebuildBatchSize;
+
+    // One runner per projector at a time; the scheduler and a rebuild must not interleave
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    private final Set<String> rebuilding = ConcurrentHashMap.newKeySet();
+
+    // Last rebuild per projector, reported by getRebuildStatus
+    private final Map<String, Map<String, Object>> rebuilds = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${journal.projection.poll-ms:1000}")
+    public void catchUpAll() {
+        for (Projector projector : projectors) {
+            ReentrantLock lock = lockFor(projector);
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                while (runBatch(projector, batchSize) == batchSize) {
+                    // keep draining while full batches come back
+                }
+            } catch (Exception e) {
+                System.err.println("Projector " + projector.name() + " failed: " + e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Starts a rebuild of the projector in the background; 409 if one is already running. */
+    public ResponseEntity<Map> rebuild(String name) {
+        Projector projector = find(name);
+        if (projector == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown projector: " + name));
+        }
+        if (!rebuilding.add(name)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("projector", name, "running", true));
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("projector", name);
+        status.put("running", true);
+        rebuilds.put(name, status);
+        Thread.ofPlatform().name("projection-rebuild-" + name).daemon().start(() -> runRebuild(projector));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
+
+    public ResponseEntity<Map> getRebuildStatus(String name) {
+        if (find(name) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown projector: " + name));
+        }
+        Map<String, Object> status = rebuilds.get(name);
+        return ResponseEntity.ok(status != null ? status : Map.of("projector", name, "running", false));
+    }
+
+    private void runRebuild(Projector projector) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("projector", projector.name());
+        result.put("running", false);
+        ReentrantLock lock = lockFor(projector);
+        lock.lock();
+        try {
+            long started = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                projector.reset();
+                checkpointRepo.save(new ProjectionCheckpoint(projector.name(), 0L, 0L));
+            });
+            if (projector instanceof BackfillingProjector backfilling) {
+                // Transactions below the horizon are finished, so the backfill's reads see all
+                // of their writes; anything from the horizon on is replayed afterwards, which
+                // is idempotent
+                long horizon = receiptEventRepo.findSettledTxidHorizon();
+                result.put("receipts", backfilling.backfill());
+                transactionTemplate.executeWithoutResult(status ->
+                        checkpointRepo.save(new ProjectionCheckpoint(projector.name(), Long.MAX_VALUE, horizon - 1)));
+            }
+            long events = 0;
+            int applied;
+            do {
+                applied = runBatch(projector, rebuildBatchSize);
+                events += applied;
+            } while (applied == rebuildBatchSize);
+            result.put("events", events);
+            result.put("elapsedMs", Duration.ofNanos(System.nanoTime() - started).toMillis());
+            System.out.println("Rebuilt projection " + result);
+        } catch (Exception e) {
+            System.err.println("Rebuild of projector " + projector.name() + " failed: " + e.getMessage());
+            result.put("error", String.valueOf(e.getMessage()));
+        } finally {
+            lock.unlock();
+            rebuilds.put(projector.name(), result);
+            rebuilding.remove(projector.name());
+        }
+    }
+
+    /** Applies the next batch in one transaction and returns how many events it held. */
+    private int runBatch(Projector projector, int size) {
+        Integer applied = transactionTemplate.execute(status -> {
+            ProjectionCheckpoint checkpoint = checkpointRepo.findById(projector.name())
+                    .orElse(new ProjectionCheckpoint(projector.name(), 0L, 0L));
+            long lastTxid = checkpoint.getLastTxid() != null
+                    ? checkpoint.getLastTxid()
+                    // Checkpoint from before events had a txid: resume right after its event
+                    : receiptEventRepo.findTxidById(checkpoint.getLastEventId()).orElse(0L);
+            List<ReceiptEvent> events = receiptEventRepo.findSettledAfter(lastTxid, checkpoint.getLastEventId(), size);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            projector.apply(events);
+            ReceiptEvent last = events.get(events.size() - 1);
+            checkpointRepo.save(new ProjectionCheckpoint(projector.name(), last.getId(), last.getTxid()));
+            return events.size();
+        });
+        return applied == null ? 0 : applied;
+    }
+
+    private Projector find(String name) {
+        return projectors.stream()
+                .filter(p -> p.name().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private ReentrantLock lockFor(Projector projector) {
+        return locks.computeIfAbsent(projector.name(), name -> new ReentrantLock());
+    }
+}
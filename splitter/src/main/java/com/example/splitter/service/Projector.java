@@ -0,0 +1,21 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ReceiptEvent;
+
+import java.util.List;
+
+/**
+ * Builds a read model from the receipt event journal. {@link ProjectionRunner} feeds
+ * events in commit order (txid, then id), in batches, inside the transaction that
+ * advances the projector's checkpoint, so a batch is applied exactly once.
+ */
+public interface Projector {
+
+    /** Stable name; keys the checkpoint. */
+    String name();
+
+    void apply(List<ReceiptEvent> events);
+
+    /** Drops the read model before a full rebuild. */
+    void reset();
+}
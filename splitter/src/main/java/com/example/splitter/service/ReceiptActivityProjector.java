@@ -0,0 +1,57 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ReceiptActivity;
+import com.example.splitter.model.ReceiptEvent;
+import com.example.splitter.repo.ReceiptActivityRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Per-receipt change counter and last-change marker, built from the journal. */
+@Component
+public class ReceiptActivityProjector implements Projector {
+
+    @Autowired
+    private ReceiptActivityRepo receiptActivityRepo;
+
+    @Override
+    public String name() {
+        return "receipt-activity";
+    }
+
+    @Override
+    public void apply(List<ReceiptEvent> events) {
+        // Fold the batch first so each receipt costs one read and one write, not one per event
+        Map<Long, ReceiptActivity> changed = new LinkedHashMap<>();
+        for (ReceiptEvent event : events) {
+            ReceiptActivity activity = changed.computeIfAbsent(event.getReceiptId(),
+                    id -> new ReceiptActivity(id, 0, null, null));
+            activity.setEventCount(activity.getEventCount() + 1);
+            activity.setLastEventType(event.getType());
+            activity.setLastEventAt(event.getCreatedAt());
+        }
+        Map<Long, ReceiptActivity> existing = new LinkedHashMap<>();
+        for (ReceiptActivity activity : receiptActivityRepo.findAllById(changed.keySet())) {
+            existing.put(activity.getReceiptId(), activity);
+        }
+        for (ReceiptActivity delta : changed.values()) {
+            ReceiptActivity current = existing.get(delta.getReceiptId());
+            if (current == null) {
+                receiptActivityRepo.save(delta);
+            } else {
+                // Managed entity; flushed with the checkpoint at commit
+                current.setEventCount(current.getEventCount() + delta.getEventCount());
+                current.setLastEventType(delta.getLastEventType());
+                current.setLastEventAt(delta.getLastEventAt());
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        receiptActivityRepo.deleteAllInBatch();
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ReceiptArchive;
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+import com.example.splitter.repo.ReceiptArchiveRepo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves old receipts out of the hot tables into gzip-compressed NDJSON files, one line
+ * per receipt holding its raw bills, items, users, split and share rows. The
+ * receipt_archive table records which file holds each receipt so reads can still find it.
+ * Each file is a run of gzip members of up to archive.block-size receipts, and the entry
+ * also records where the receipt's member starts, so a read decompresses one block
+ * rather than the whole file.
+ *
+ * Archiving works on whole partitions from db/partitioning.sql: a partition below the
+ * one holding the newest receipt is archived once none of its receipts is dated after
+ * the cutoff and none has had activity since. Each partition is handled in a single
+ * transaction that locks it, writes the file, records the archive entries and then
+ * drops the partition instead of deleting rows. The file is only moved into place
+ * right before commit and removed again if the transaction fails, so a receipt is
+ * never in neither place.
+ */
+@Component
+public class ReceiptArchiver {
+
+    // Order of the tables within an archive record
+    private static final List<String> TABLES = List.of("share", "split", "users", "items", "bills");
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("bills_p(\\d+)");
+
+    private static final Pattern LINE_RECEIPT_ID = Pattern.compile("\\{\"receiptId\":(\\d+),");
+
+    @Autowired
+    private ReceiptArchiveRepo receiptArchiveRepo;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReceiptHashIndex receiptHashIndex;
+
+    @Value("${archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.older-than-days:365}")
+    private int olderThanDays;
+
+    @Value("${archive.dir:./data/archive}")
+    private String archiveDir;
+
+    @Value("${archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${archive.block-size:64}")
+    private int blockSize;
+
+    @Value("${archive.partitioning.step:100000}")
+    private long step;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${archive.cron:0 30 3 * * *}")
+    public void archiveOldReceipts() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Boolean partitioned = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('bills'))",
+                    Map.of(), Boolean.class);
+            if (!Boolean.TRUE.equals(partitioned)) {
+                System.err.println("Receipt archiving needs the partitioned tables from db/partitioning.sql");
+                return;
+            }
+            LocalDate cutoff = LocalDate.now().minusDays(olderThanDays);
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(receipt_id), 0) FROM bills", Map.of(), Long.class);
+            long archived = 0;
+            for (long partition : findPartitions()) {
+                // The partition holding the newest receipt still takes inserts
+                if (partition >= maxId / step) {
+                    break;
+                }
+                archived += archivePartition(partition, cutoff);
+            }
+            if (archived > 0) {
+                System.out.println("Archived " + archived + " receipts dated before " + cutoff);
+            }
+        } catch (Exception e) {
+            System.err.println("Receipt archiving failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** Reads an archived receipt back, or empty if it was never archived. */
+    public Optional<BillsDTO> findReceipt(Long receiptId) {
+        Optional<ReceiptArchive> entry = receiptArchiveRepo.findById(receiptId);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = Paths.get(archiveDir, entry.get().getFileName());
+        long offset = entry.get().getBlockOffset() == null ? 0 : entry.get().getBlockOffset();
+        // Every line starts with its receipt id, so only the matching line is parsed
+        String prefix = "{\"receiptId\":" + receiptId + ",";
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(Channels.newInputStream(channel.position(offset)), 64 * 1024),
+                     StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    return Optional.of(toDto(objectMapper.readTree(line)));
+                }
+                // Lines are in receipt id order, so the receipt cannot come later
+                if (lineReceiptId(line) > receiptId) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read archive " + file + ": " + e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static long lineReceiptId(String line) {
+        Matcher matcher = LINE_RECEIPT_ID.matcher(line);
+        return matcher.lookingAt() ? Long.parseLong(matcher.group(1)) : Long.MIN_VALUE;
+    }
+
+    /** Partition numbers of bills, lowest first. */
+    private List<Long> findPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'bills'::regclass", Map.of(), String.class);
+        List<Long> partitions = new ArrayList<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                partitions.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        Collections.sort(partitions);
+        return partitions;
+    }
+
+    /** Archives and drops the partition if it is old enough; returns how many receipts it held. */
+    private long archivePartition(long partition, LocalDate cutoff) throws IOException {
+        long lo = partition * step;
+        long hi = lo + step;
+        String bills = "bills_p" + partition;
+        String items = "items_p" + partition;
+        String share = "share_p" + partition;
+        String fileName = "receipts-" + lo + "-" + (hi - 1) + "-" + System.currentTimeMillis() + ".ndjson.gz";
+        Path target = Paths.get(archiveDir, fileName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), fileName, ".tmp");
+        try {
+            Long archived = transactionTemplate.execute(status -> {
+                // Same order as writers take them: bills, then items, then share
+                jdbcTemplate.update("LOCK TABLE " + bills + ", " + items + ", " + share + " IN EXCLUSIVE MODE", Map.of());
+                if (!isArchivable(bills, lo, hi, cutoff)) {
+                    return 0L;
+                }
+                List<Long> splitIds = new ArrayList<>();
+                long receipts;
+                try {
+                    receipts = writePartition(temp, fileName, lo, hi, bills, items, share, splitIds);
+                    // An empty partition is just dropped; an empty file would not even be valid gzip
+                    if (receipts > 0) {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // share references split, so its partition goes first
+                jdbcTemplate.update("DROP TABLE " + share, Map.of());
+                for (int from = 0; from < splitIds.size(); from += batchSize) {
+                    jdbcTemplate.update("DELETE FROM split WHERE item_id IN (:ids)",
+                            Map.of("ids", splitIds.subList(from, Math.min(from + batchSize, splitIds.size()))));
+                }
+                jdbcTemplate.update("DROP TABLE " + items, Map.of());
+                jdbcTemplate.update("ALTER TABLE bills DETACH PARTITION " + bills, Map.of());
+                jdbcTemplate.update("DROP TABLE " + bills, Map.of());
+                return receipts;
+            });
+            return archived == null ? 0 : archived;
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Nothing in the partition is dated on or after the cutoff or has been touched since;
+    // receipts without a well-formed date only count by their activity
+    private boolean isArchivable(String bills, long lo, long hi, LocalDate cutoff) {
+        Map<String, Object> params = Map.of(
+                "lo", lo,
+                "hi", hi,
+                "cutoff", cutoff.toString(),
+                "cutoffTime", Timestamp.from(cutoff.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        Boolean recent = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + bills + " WHERE date ~ '^[0-9]{4}-[0-9]{2}-[0-9]{2}$' AND date >= :cutoff) " +
+                        "OR EXISTS (SELECT 1 FROM receipt_events WHERE receipt_id >= :lo AND receipt_id < :hi " +
+                        "AND created_at >= :cutoffTime)", params, Boolean.class);
+        return !Boolean.TRUE.equals(recent);
+    }
+
+    /**
+     * Streams the partition into the file batch by batch, records where each receipt went
+     * and removes its users rows. split rows are locked and their ids collected so only
+     * those are deleted once the share partition is gone.
+     */
+    private long writePartition(Path temp, String fileName, long lo, long hi, String bills, String items,
+                                String share, List<Long> splitIds) throws IOException {
+        Map<String, String> sources = Map.of(
+                "share", "SELECT * FROM " + share + " WHERE receipt_id >= :lo AND receipt_id < :hi",
+                "split", "SELECT * FROM split WHERE receipt_id >= :lo AND receipt_id < :hi FOR UPDATE",
+                "users", "DELETE FROM users WHERE receipt_id >= :lo AND receipt_id < :hi RETURNING *",
+                "items", "SELECT * FROM " + items + " WHERE receipt_id >= :lo AND receipt_id < :hi",
+                "bills", "SELECT * FROM " + bills + " WHERE receipt_id >= :lo AND receipt_id < :hi");
+        long receipts = 0;
+        Timestamp now = Timestamp.from(Instant.now());
+        BlockOutputStream out = new BlockOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024));
+        try {
+            for (long from = lo; from < hi; from += batchSize) {
+                Map<String, Object> params = Map.of("lo", from, "hi", Math.min(from + batchSize, hi));
+                Map<String, Map<Long, List<Map<String, Object>>>> rowsByTable = new LinkedHashMap<>();
+                SortedSet<Long> receiptIds = new TreeSet<>();
+                for (String table : TABLES) {
+                    Map<Long, List<Map<String, Object>>> rows = jdbcTemplate.queryForList(sources.get(table), params)
+                            .stream()
+                            .collect(Collectors.groupingBy(row -> ((Number) row.get("receipt_id")).longValue()));
+                    rowsByTable.put(table, rows);
+                    receiptIds.addAll(rows.keySet());
+                }
+                if (receiptIds.isEmpty()) {
+                    continue;
+                }
+                List<Long> ordered = new ArrayList<>(receiptIds);
+                List<MapSqlParameterSource> entries = new ArrayList<>();
+                for (int start = 0; start < ordered.size(); start += blockSize) {
+                    List<Long> block = ordered.subList(start, Math.min(start + blockSize, ordered.size()));
+                    long offset = out.position();
+                    writeBlock(out, block, rowsByTable);
+                    for (Long receiptId : block) {
+                        List<Map<String, Object>> bill = rowsByTable.get("bills").getOrDefault(receiptId, List.of());
+                        entries.add(new MapSqlParameterSource()
+                                .addValue("receiptId", receiptId)
+                                .addValue("fileName", fileName)
+                                .addValue("archivedAt", now)
+                                .addValue("blockOffset", offset)
+                                .addValue("imageId", bill.isEmpty() ? null : bill.get(0).get("image_id"), Types.VARCHAR));
+                    }
+                }
+                rowsByTable.get("split").values().forEach(rows ->
+                        rows.forEach(row -> splitIds.add(((Number) row.get("item_id")).longValue())));
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO receipt_archive (receipt_id, file_name, archived_at, block_offset, image_id) " +
+                                "VALUES (:receiptId, :fileName, :archivedAt, :blockOffset, :imageId)",
+                        entries.toArray(MapSqlParameterSource[]::new));
+                unindexImageHashes(rowsByTable.get("bills"));
+                receipts += receiptIds.size();
+            }
+        } finally {
+            out.closeFile();
+        }
+        return receipts;
+    }
+
+    /** Writes the receipts as one gzip member; readers can start decompressing at its first byte. */
+    private void writeBlock(BlockOutputStream out, List<Long> receiptIds,
+                            Map<String, Map<Long, List<Map<String, Object>>>> rowsByTable) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(out, 64 * 1024), StandardCharsets.UTF_8))) {
+            for (Long receiptId : receiptIds) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("receiptId", receiptId);
+                for (String table : TABLES) {
+                    record.put(table, rowsByTable.get(table).getOrDefault(receiptId, List.of()));
+                }
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Archived receipts can no longer be returned as near-duplicates of an upload, so
+     * their perceptual hashes leave the in-memory index; applied once the archive commits.
+     */
+    private void unindexImageHashes(Map<Long, List<Map<String, Object>>> billsByReceipt) {
+        billsByReceipt.forEach((receiptId, rows) -> {
+            Object hash = rows.get(0).get("image_hash");
+            if (hash != null) {
+                receiptHashIndex.remove(((Number) hash).longValue(), receiptId);
+            }
+        });
+    }
+
+    /**
+     * The archive file under its gzip members: counts the bytes written so far, and closing
+     * a member only flushes, leaving the file open for the next one.
+     */
+    private static final class BlockOutputStream extends FilterOutputStream {
+
+        private long position;
+
+        BlockOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        void closeFile() throws IOException {
+            out.close();
+        }
+    }
+
+    private BillsDTO toDto(JsonNode record) {
+        JsonNode bill = record.path("bills").path(0);
+        BillsDTO billsDTO = new BillsDTO();
+        billsDTO.setStoreName(bill.path("store_name").asText(null));
+        billsDTO.setStoreAddress(bill.path("store_address").asText(null));
+        billsDTO.setDate(bill.path("date").asText(null));
+        billsDTO.setTime(bill.path("time").asText(null));
+        billsDTO.setSubTotal(bill.path("sub_total").asDouble());
+        billsDTO.setTaxTotal(bill.path("tax_total").asDouble());
+        billsDTO.setTotal(bill.path("total").asDouble());
+        if (bill.hasNonNull("image_hash")) {
+            billsDTO.setImageHash(ImageHasher.toHex(bill.get("image_hash").asLong()));
+        }
+        billsDTO.setImageId(bill.path("image_id").asText(null));
+
+        List<ItemsDTO> items = new ArrayList<>();
+        for (JsonNode row : record.path("items")) {
+            ItemsDTO item = new ItemsDTO();
+            item.setId(row.path("id").asLong());
+            item.setDescription(row.path("description").asText(null));
+            item.setPrice(row.path("price").asDouble());
+            items.add(item);
+        }
+        billsDTO.setItems(items);
+        return billsDTO;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+
+import java.util.Optional;
+
+/**
+ * One tier of receipt extraction. Implementations turn an uploaded image into the
+ * same {@link BillsDTO} shape the frontend reviews and posts back to /ocr/receipt.
+ */
+public interface ReceiptExtractor {
+
+    /** Short tier name, used as the metric tag. */
+    String name();
+
+    /**
+     * Extracts a receipt from the raw image bytes.
+     *
+     * @return the receipt, or empty when this tier cannot vouch for its result and the
+     *         caller should escalate to the next tier
+     */
+    Optional<BillsDTO> extract(byte[] image, String contentType) throws Exception;
+}
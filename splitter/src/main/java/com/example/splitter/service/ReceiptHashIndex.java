@@ -0,0 +1,251 @@
+package com.example.splitter.service;
+
+import com.example.splitter.repo.BillsRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory multi-index hash over the perceptual hashes of stored receipts.
+ *
+ * The 64-bit hash is cut into four 16-bit chunks and each chunk value keys a bucket of
+ * entries. Two hashes within Hamming distance 3 must agree exactly on at least one
+ * chunk (pigeonhole), so a lookup only compares the handful of entries sharing a
+ * bucket with the query instead of scanning every stored hash. Entries live in
+ * primitive arrays to keep millions of receipts to a few tens of megabytes.
+ *
+ * Inside a transaction, adds and removes are applied only once it commits, so a rolled
+ * back receipt is never reported as a duplicate. A removed entry leaves its slot unused
+ * until the next rebuild.
+ */
+@Component
+public class ReceiptHashIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int MAX_SUPPORTED_DISTANCE = CHUNKS - 1;
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    @Autowired
+    private BillsRepo billsRepo;
+
+    @Value("${ocr.dedup.max-distance:3}")
+    private int maxDistance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Table table = new Table();
+
+    // Adds/removes committed while a rebuild is loading, replayed onto the new table
+    private List<Runnable> pendingChanges;
+
+    /**
+     * Reloads every stored hash. The table is built off to the side and swapped in under
+     * the write lock, so lookups keep being served from the old one while the pages load.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                System.out.println("Receipt hash index rebuild already running");
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Table rebuilt = new Table();
+        try {
+            long after = 0;
+            while (true) {
+                List<Object[]> page = billsRepo.findImageHashesAfter(after, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+                for (Object[] row : page) {
+                    rebuilt.append((Long) row[1], (Long) row[0]);
+                    after = (Long) row[0];
+                }
+                if (page.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            table = rebuilt;
+            pendingChanges.forEach(Runnable::run);
+            pendingChanges = null;
+            System.out.println("Receipt hash index rebuilt with " + table.size + " entries");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(long hash, long receiptId) {
+        afterCommit(() -> apply(() -> {
+            // A receipt committed mid-rebuild may already be on one of the loaded pages
+            if (table.find(hash, receiptId) < 0) {
+                table.append(hash, receiptId);
+            }
+        }));
+    }
+
+    /** Drops the entry for the receipt, e.g. once it has been archived. */
+    public void remove(long hash, long receiptId) {
+        afterCommit(() -> apply(() -> table.remove(hash, receiptId)));
+    }
+
+    /** Returns the receipt whose hash is closest to the query within the configured distance. */
+    public OptionalLong findNearest(long hash) {
+        return findNearest(hash, maxDistance);
+    }
+
+    /** Returns the receipt whose hash is closest to the query within the given distance. */
+    public OptionalLong findNearest(long hash, int maxDistance) {
+        int limit = Math.min(Math.min(maxDistance, this.maxDistance), MAX_SUPPORTED_DISTANCE);
+        lock.readLock().lock();
+        try {
+            return table.findNearest(hash, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static final class Table {
+
+        private long[] hashes = new long[1024];
+        private long[] receiptIds = new long[1024];
+        private int size;
+
+        // buckets[chunk][chunkValue] -> entry positions; bucketSizes tracks the used length
+        private final int[][][] buckets = new int[CHUNKS][1 << CHUNK_BITS][];
+        private final int[][] bucketSizes = new int[CHUNKS][1 << CHUNK_BITS];
+
+        OptionalLong findNearest(long hash, int limit) {
+            int bestDistance = Integer.MAX_VALUE;
+            long bestReceipt = -1;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int key = chunkValue(hash, chunk);
+                int[] bucket = buckets[chunk][key];
+                int count = bucketSizes[chunk][key];
+                for (int i = 0; i < count; i++) {
+                    int entry = bucket[i];
+                    int distance = Long.bitCount(hashes[entry] ^ hash);
+                    if (distance <= limit && distance < bestDistance) {
+                        bestDistance = distance;
+                        bestReceipt = receiptIds[entry];
+                    }
+                }
+                if (bestDistance == 0) {
+                    break;
+                }
+            }
+            return bestReceipt < 0 ? OptionalLong.empty() : OptionalLong.of(bestReceipt);
+        }
+
+        int find(long hash, long receiptId) {
+            int key = chunkValue(hash, 0);
+            int[] bucket = buckets[0][key];
+            int count = bucketSizes[0][key];
+            for (int i = 0; i < count; i++) {
+                int entry = bucket[i];
+                if (receiptIds[entry] == receiptId && hashes[entry] == hash) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        void append(long hash, long receiptId) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                receiptIds = Arrays.copyOf(receiptIds, size * 2);
+            }
+            int entry = size++;
+            hashes[entry] = hash;
+            receiptIds[entry] = receiptId;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int key = chunkValue(hash, chunk);
+                int[] bucket = buckets[chunk][key];
+                int count = bucketSizes[chunk][key];
+                if (bucket == null) {
+                    bucket = new int[2];
+                } else if (count == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, count * 2);
+                }
+                bucket[count] = entry;
+                buckets[chunk][key] = bucket;
+                bucketSizes[chunk][key] = count + 1;
+            }
+        }
+
+        void remove(long hash, long receiptId) {
+            int entry = find(hash, receiptId);
+            if (entry < 0) {
+                return;
+            }
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int key = chunkValue(hash, chunk);
+                int[] bucket = buckets[chunk][key];
+                int count = bucketSizes[chunk][key];
+                for (int i = 0; i < count; i++) {
+                    if (bucket[i] == entry) {
+                        // Order inside a bucket does not matter, so fill the hole with the last one
+                        bucket[i] = bucket[count - 1];
+                        bucketSizes[chunk][key] = count - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int chunkValue(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & ((1 << CHUNK_BITS) - 1);
+    }
+}
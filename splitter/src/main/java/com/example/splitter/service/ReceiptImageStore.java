@@ -0,0 +1,138 @@
+package com.example.splitter.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk store for original receipt images. An image is keyed by the
+ * SHA-256 of its bytes and lives at {@code <root>/ab/cd/abcd...}, so identical uploads
+ * are stored once and no directory grows past a few thousand entries.
+ */
+@Component
+public class ReceiptImageStore {
+
+    private static final Pattern IMAGE_ID = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${ocr.images.dir:./data/receipt-images}")
+    private String rootDir;
+
+    /** Stores the image if it is not already present and returns its id. */
+    public String store(byte[] image) throws IOException {
+        String imageId = sha256(image);
+        Path target = pathOf(imageId);
+        if (Files.exists(target)) {
+            // Restarts the orphan sweep's grace period for an image uploaded again
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return imageId;
+        }
+        Files.createDirectories(target.getParent());
+        // Write beside the target and rename so readers never see a partial file
+        Path temp = Files.createTempFile(target.getParent(), imageId, ".tmp");
+        try {
+            Files.write(temp, image);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            if (!Files.exists(target)) {
+                throw e;
+            }
+        }
+        return imageId;
+    }
+
+    public boolean exists(String imageId) {
+        return isValidId(imageId) && Files.exists(pathOf(imageId));
+    }
+
+    /** Reads a whole stored image, for re-processing; the extractors need it as an array anyway. */
+    public byte[] read(String imageId) throws IOException {
+        return Files.readAllBytes(pathOf(imageId));
+    }
+
+    /**
+     * Copies a stored image to the target with FileChannel.transferTo, for serving. This is
+     * only zero-copy when the target is itself a file or socket channel; a channel wrapped
+     * around the servlet output stream gets an ordinary buffered copy.
+     */
+    public void transferTo(String imageId, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(imageId), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    public long size(String imageId) throws IOException {
+        return Files.size(pathOf(imageId));
+    }
+
+    /** Sniffs the media type from the first bytes; the store itself keeps no metadata. */
+    public String contentType(String imageId) throws IOException {
+        byte[] head = new byte[16];
+        try (FileChannel channel = FileChannel.open(pathOf(imageId), StandardOpenOption.READ)) {
+            int read = channel.read(ByteBuffer.wrap(head));
+            String type = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(head, 0, Math.max(read, 0)));
+            return type != null ? type : "application/octet-stream";
+        }
+    }
+
+    /** Ids of every stored image, walked lazily; the caller must close the stream. */
+    public Stream<String> storedImageIds() throws IOException {
+        Path root = Paths.get(rootDir);
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.walk(root, 3)
+                .map(path -> path.getFileName().toString())
+                // Skips the shard directories and in-flight temp files
+                .filter(ReceiptImageStore::isValidId);
+    }
+
+    public Instant lastModified(String imageId) throws IOException {
+        return Files.getLastModifiedTime(pathOf(imageId)).toInstant();
+    }
+
+    public void delete(String imageId) throws IOException {
+        Files.deleteIfExists(pathOf(imageId));
+    }
+
+    private Path pathOf(String imageId) {
+        if (!isValidId(imageId)) {
+            throw new IllegalArgumentException("Invalid image id: " + imageId);
+        }
+        return Paths.get(rootDir, imageId.substring(0, 2), imageId.substring(2, 4), imageId);
+    }
+
+    private static boolean isValidId(String imageId) {
+        return imageId != null && IMAGE_ID.matcher(imageId).matches();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.splitter.service;
+
+import com.example.splitter.repo.BillsRepo;
+import com.example.splitter.repo.ReceiptArchiveRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Deletes stored originals that no receipt, live or archived, points at: images
+ * uploaded for extraction but never saved. An image is only removed once it is older than the grace period,
+ * which leaves users time to review an extraction before saving it; uploading the same
+ * image again restarts the period.
+ */
+@Component
+public class ReceiptImageSweeper {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private BillsRepo billsRepo;
+
+    @Autowired
+    private ReceiptArchiveRepo receiptArchiveRepo;
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    @Value("${ocr.images.orphan-grace-hours:48}")
+    private long graceHours;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+
+    /** Starts a sweep in the background; 409 if one is already running. */
+    public ResponseEntity<Map> start() {
+        if (running.get()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status());
+        }
+        Thread.ofPlatform().name("receipt-image-sweep").daemon().start(this::sweepOrphans);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status());
+    }
+
+    public ResponseEntity<Map> getStatus() {
+        return ResponseEntity.ok(status());
+    }
+
+    @Scheduled(cron = "${ocr.images.orphan-sweep-cron:0 0 4 * * *}")
+    public void sweepOrphans() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        scanned.set(0);
+        deleted.set(0);
+        Instant cutoff = Instant.now().minus(Duration.ofHours(graceHours));
+        try (Stream<String> imageIds = receiptImageStore.storedImageIds()) {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            Iterator<String> iterator = imageIds.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    deleteUnreferenced(batch, cutoff);
+                    batch.clear();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Receipt image sweep failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+            System.out.println("Receipt image sweep finished: " + status());
+        }
+    }
+
+    private void deleteUnreferenced(List<String> batch, Instant cutoff) throws IOException {
+        scanned.addAndGet(batch.size());
+        List<String> candidates = new ArrayList<>();
+        for (String imageId : batch) {
+            if (receiptImageStore.lastModified(imageId).isBefore(cutoff)) {
+                candidates.add(imageId);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<String> referenced = new HashSet<>(billsRepo.findReferencedImageIds(candidates));
+        // Archived receipts keep their originals too
+        referenced.addAll(receiptArchiveRepo.findReferencedImageIds(candidates));
+        for (String imageId : candidates) {
+            // A save racing this check finds the image gone and stores the receipt without it
+            if (!referenced.contains(imageId)) {
+                receiptImageStore.delete(imageId);
+                deleted.incrementAndGet();
+            }
+        }
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("scanned", scanned.get());
+        status.put("deleted", deleted.get());
+        return status;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.splitter.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Keeps range partitions ahead of the receipt id sequence once db/partitioning.sql has
+ * been applied. Without a partition for a new id the insert fails, so this always
+ * stays two partition widths ahead of the highest id.
+ */
+@Component
+public class ReceiptPartitionMaintainer {
+
+    private static final List<String> PARTITIONED_TABLES = List.of("bills", "items", "share");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${archive.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.partitioning.step:100000}")
+    private long step;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        ensurePartitions();
+    }
+
+    @Scheduled(fixedDelayString = "${archive.partitioning.check-ms:3600000}")
+    public void ensurePartitions() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // The connection pool does not auto-commit, so the DDL needs a transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(receipt_id), 0) FROM bills", Long.class);
+                long upto = (maxId == null ? 0 : maxId) + 2 * step;
+                for (String table : PARTITIONED_TABLES) {
+                    Boolean partitioned = jdbcTemplate.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                            Boolean.class, table);
+                    if (Boolean.TRUE.equals(partitioned)) {
+                        jdbcTemplate.queryForObject("SELECT splitter_ensure_partitions(?, ?, ?)::text",
+                                String.class, table, upto, step);
+                    } else {
+                        System.err.println("Table " + table + " is not partitioned; run db/partitioning.sql first");
+                    }
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Partition maintenance failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arithmetic checks on an extracted receipt: items must add up to the subtotal and
+ * subtotal plus tax must equal the total.
+ */
+public final class ReceiptReconciler {
+
+    // Half a cent either way absorbs rounding on printed prices
+    private static final double TOLERANCE = 0.005;
+
+    private ReceiptReconciler() {
+    }
+
+    /**
+     * Returns the names of the fields that do not reconcile; empty when the receipt is
+     * internally consistent.
+     */
+    public static List<String> inconsistentFields(BillsDTO bill) {
+        List<String> fields = new ArrayList<>();
+        if (bill.getItems() == null || bill.getItems().isEmpty()) {
+            fields.add("items");
+            return fields;
+        }
+        double itemsTotal = 0;
+        for (ItemsDTO item : bill.getItems()) {
+            itemsTotal += item.getPrice();
+        }
+        if (!matches(itemsTotal, bill.getSubTotal())) {
+            fields.add("items");
+            fields.add("subTotal");
+        }
+        if (!matches(bill.getSubTotal() + bill.getTaxTotal(), bill.getTotal())) {
+            if (!fields.contains("subTotal")) {
+                fields.add("subTotal");
+            }
+            fields.add("taxTotal");
+            fields.add("total");
+        }
+        return fields;
+    }
+
+    public static boolean isConsistent(BillsDTO bill) {
+        return inconsistentFields(bill).isEmpty();
+    }
+
+    private static boolean matches(double actual, double expected) {
+        return Math.abs(actual - expected) <= TOLERANCE + 1e-9;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.repo.BillsRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background sweep that re-runs extraction over stored original images, e.g. after a
+ * prompt or model change. Stored receipts are never overwritten: each fresh result is
+ * written to {@code <output-dir>/<receiptId>.json} for review.
+ */
+@Component
+public class ReceiptReextractionJob {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private BillsRepo billsRepo;
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    @Autowired
+    private OcrService ocrService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ocr.reextract.parallelism:4}")
+    private int parallelism;
+
+    @Value("${ocr.reextract.output-dir:./data/reextracted}")
+    private String outputDir;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong inconsistent = new AtomicLong();
+    private volatile Thread coordinator;
+
+    /** Starts a sweep over receipts after the given id; 409 if one is already running. */
+    public ResponseEntity<Map> start(long afterReceiptId) {
+        if (!running.compareAndSet(false, true)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status());
+        }
+        processed.set(0);
+        failed.set(0);
+        inconsistent.set(0);
+        coordinator = Thread.ofPlatform().name("receipt-reextract").daemon().start(() -> sweep(afterReceiptId));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status());
+    }
+
+    public ResponseEntity<Map> getStatus() {
+        return ResponseEntity.ok(status());
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("processed", processed.get());
+        status.put("failed", failed.get());
+        status.put("inconsistent", inconsistent.get());
+        return status;
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread current = coordinator;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void sweep(long afterReceiptId) {
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // Bounds queued work so a sweep over millions of receipts holds only a few pages
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        try {
+            Files.createDirectories(Paths.get(outputDir));
+            long after = afterReceiptId;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Object[]> page = billsRepo.findImageIdsAfter(after, PageRequest.ofSize(PAGE_SIZE));
+                for (Object[] row : page) {
+                    Long receiptId = (Long) row[0];
+                    String imageId = (String) row[1];
+                    after = receiptId;
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            reextract(receiptId, imageId);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+            // Wait for the tail of the sweep
+            inFlight.acquire(parallelism * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Receipt re-extraction sweep failed: " + e.getMessage());
+        } finally {
+            workers.shutdownNow();
+            running.set(false);
+            System.out.println("Receipt re-extraction finished: " + status());
+        }
+    }
+
+    private void reextract(Long receiptId, String imageId) {
+        try {
+            byte[] image = receiptImageStore.read(imageId);
+            BillsDTO receipt = ocrService.extractWithTiers(image, receiptImageStore.contentType(imageId));
+            receipt.setId(receiptId);
+            receipt.setImageId(imageId);
+            if (!ReceiptReconciler.isConsistent(receipt)) {
+                inconsistent.incrementAndGet();
+            }
+            Path target = Paths.get(outputDir, receiptId + ".json");
+            objectMapper.writeValue(target.toFile(), receipt);
+            processed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Re-extraction failed for receipt " + receiptId + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.splitter.service;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the JSON schema for OpenAI strict structured outputs from the DTO classes, so
+ * the model's response shape cannot drift from what {@link com.example.splitter.model.dto.BillsDTO}
+ * deserializes. Strict mode requires every property to be listed as required and
+ * additionalProperties to be false.
+ */
+public final class ReceiptSchema {
+
+    // Assigned by the server, never read off the receipt
+    private static final Set<String> SERVER_FIELDS = Set.of("id", "imageHash", "duplicateOf", "imageId");
+
+    private ReceiptSchema() {
+    }
+
+    public static Map<String, Object> of(Class<?> type) {
+        return objectSchema(type, null);
+    }
+
+    /** Schema restricted to the given top-level fields, used for targeted re-asks. */
+    public static Map<String, Object> of(Class<?> type, Collection<String> fields) {
+        return objectSchema(type, fields);
+    }
+
+    private static Map<String, Object> objectSchema(Class<?> type, Collection<String> only) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || SERVER_FIELDS.contains(field.getName())) {
+                continue;
+            }
+            if (only != null && !only.contains(field.getName())) {
+                continue;
+            }
+            properties.put(field.getName(), typeSchema(field.getGenericType()));
+        }
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", new ArrayList<>(properties.keySet()));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    private static Map<String, Object> typeSchema(Type type) {
+        if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw
+                && List.class.isAssignableFrom(raw)) {
+            Map<String, Object> schema = new LinkedHashMap<>();
+            schema.put("type", "array");
+            schema.put("items", typeSchema(parameterized.getActualTypeArguments()[0]));
+            return schema;
+        }
+        Class<?> raw = (Class<?>) type;
+        if (raw == String.class) {
+            return Map.of("type", "string");
+        }
+        if (raw == double.class || raw == Double.class || raw == float.class || raw == Float.class) {
+            return Map.of("type", "number");
+        }
+        if (raw == int.class || raw == Integer.class || raw == long.class || raw == Long.class) {
+            return Map.of("type", "integer");
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return Map.of("type", "boolean");
+        }
+        return objectSchema(raw, null);
+    }
+}
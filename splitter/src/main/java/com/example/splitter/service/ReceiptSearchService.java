@@ -0,0 +1,150 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.ReceiptSearchHitDTO;
+import com.example.splitter.repo.BillsRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typo-tolerant search over item descriptions, store names and addresses. Postgres
+ * keeps the trigram GiST indexes current on every insert and update, so there is no
+ * separate index to maintain from the write paths.
+ */
+@Service
+public class ReceiptSearchService {
+
+    private record TrigramIndex(String name, String table, String column) {
+    }
+
+    // GiST rather than GIN so each branch of the search can walk the index in distance order
+    // and stop at its LIMIT. A 64-byte signature (default 12) cuts the false positives on
+    // short receipt strings enough to keep index scans cheaper than GIN's bitmap scans
+    private static final List<TrigramIndex> INDEXES = List.of(
+            new TrigramIndex("idx_items_description_trgm_gist", "items", "description"),
+            new TrigramIndex("idx_bills_store_name_trgm_gist", "bills", "store_name"),
+            new TrigramIndex("idx_bills_store_address_trgm_gist", "bills", "store_address"));
+
+    // GIN indexes created by earlier versions, replaced by the GiST ones above
+    private static final List<String> SUPERSEDED_INDEXES = List.of(
+            "idx_items_description_trgm", "idx_bills_store_name_trgm", "idx_bills_store_address_trgm");
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private BillsRepo billsRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // pg_trgm word similarity needed for a hit; lower tolerates more typos
+    @Value("${search.min-similarity:0.4}")
+    private double minSimilarity;
+
+    @Value("${search.create-indexes:true}")
+    private boolean createIndexes;
+
+    // After Hibernate has created the tables; creating an extension needs the right privileges,
+    // so a failure is logged and search simply runs without the indexes. Indexes are built
+    // CONCURRENTLY so receipts can still be written meanwhile, and every step is idempotent,
+    // so a restart after a failure picks up where the last run stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        if (!createIndexes) {
+            return;
+        }
+        try {
+            executeAutoCommit("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            for (TrigramIndex index : INDEXES) {
+                createIndex(index);
+            }
+            for (String name : SUPERSEDED_INDEXES) {
+                dropIndex(name);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not create search indexes: " + e.getMessage());
+        }
+    }
+
+    private void createIndex(TrigramIndex index) {
+        String using = " USING gist (" + index.column() + " gist_trgm_ops(siglen=64))";
+        if (!"p".equals(relkind(index.table()))) {
+            createConcurrently(index.name(), index.table(), using);
+            return;
+        }
+        // A partitioned table cannot be indexed concurrently: the parent index is created
+        // ON ONLY the parent and stays invalid until each partition's index, built
+        // concurrently, is attached. Partitions created afterwards get one automatically
+        executeAutoCommit("CREATE INDEX IF NOT EXISTS " + index.name() + " ON ONLY " + index.table() + using);
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?) AND NOT EXISTS (
+                    SELECT 1 FROM pg_inherits ii JOIN pg_index x ON x.indexrelid = ii.inhrelid
+                    WHERE ii.inhparent = to_regclass(?) AND x.indrelid = c.oid)
+                ORDER BY c.relname
+                """, String.class, index.table(), index.name());
+        for (String partition : partitions) {
+            String partitionIndex = partition + "_" + index.column() + "_trgm_gist";
+            createConcurrently(partitionIndex, partition, using);
+            executeAutoCommit("ALTER INDEX " + index.name() + " ATTACH PARTITION " + partitionIndex);
+        }
+    }
+
+    private void createConcurrently(String name, String table, String using) {
+        // An interrupted concurrent build leaves an invalid index that IF NOT EXISTS would keep
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)", Boolean.class, name);
+        if (valid.contains(Boolean.FALSE)) {
+            executeAutoCommit("DROP INDEX CONCURRENTLY " + name);
+        }
+        executeAutoCommit("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table + using);
+    }
+
+    private void dropIndex(String name) {
+        String kind = relkind(name);
+        if (kind != null) {
+            // Partitioned indexes cannot be dropped concurrently either
+            executeAutoCommit(("I".equals(kind) ? "DROP INDEX " : "DROP INDEX CONCURRENTLY ") + name);
+        }
+    }
+
+    private String relkind(String relation) {
+        return jdbcTemplate.queryForList("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)",
+                String.class, relation).stream().findFirst().orElse(null);
+    }
+
+    // CONCURRENTLY refuses to run inside a transaction block and the pool does not
+    // auto-commit, so the statement gets a connection switched to auto-commit for its duration
+    private void executeAutoCommit(String ddl) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(ddl);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Query must not be empty"));
+        }
+        List<ReceiptSearchHitDTO> hits = billsRepo.search(query.trim(), minSimilarity,
+                Math.max(1, Math.min(limit, MAX_LIMIT)));
+        return ResponseEntity.ok(hits);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic line-item parser for plain printed receipts. Follows the same rules
+ * the GPT-4o prompt spells out: prices without currency symbols, a trailing '-' marks
+ * a discount on the previous item, dates as YYYY-MM-DD and times as HH:MM.
+ */
+public final class ReceiptTextParser {
+
+    // "<description> <price>[-] [tax flag]", e.g. "MILK 2L   3.49 F" or "COUPON  0.50-"
+    private static final Pattern PRICE_LINE =
+            Pattern.compile("^(.*?)\\s+\\$?(-?\\d{1,6}[.,]\\d{2})(-?)\\s*[A-Z*]{0,2}$");
+    private static final Pattern ISO_DATE = Pattern.compile("(\\d{4})[-/.](\\d{1,2})[-/.](\\d{1,2})");
+    private static final Pattern US_DATE = Pattern.compile("(\\d{1,2})[-/.](\\d{1,2})[-/.](\\d{2,4})");
+    // STRICT rejects dates like 2/30 or 13/01 that the patterns above still match
+    private static final DateTimeFormatter DATE =
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT);
+    private static final Pattern TIME = Pattern.compile("(\\d{1,2}):(\\d{2})(?::\\d{2})?\\s*([AaPp][Mm])?");
+
+    // Payment and change lines carry prices but are not part of the bill
+    private static final String[] IGNORED_KEYWORDS = {
+            "CHANGE", "CASH", "TENDER", "VISA", "MASTERCARD", "DEBIT", "CREDIT", "AMEX", "BALANCE", "PAID"
+    };
+
+    private ReceiptTextParser() {
+    }
+
+    public static BillsDTO parse(List<String> lines) {
+        BillsDTO bill = new BillsDTO();
+        bill.setStoreName("");
+        bill.setStoreAddress("");
+        bill.setDate("");
+        bill.setTime("");
+        List<ItemsDTO> items = new ArrayList<>();
+        List<String> header = new ArrayList<>();
+        boolean seenPrice = false;
+
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (bill.getDate().isEmpty()) {
+                bill.setDate(parseDate(line));
+            }
+            if (bill.getTime().isEmpty()) {
+                bill.setTime(parseTime(line));
+            }
+
+            Matcher m = PRICE_LINE.matcher(line);
+            if (!m.matches()) {
+                if (!seenPrice) {
+                    header.add(line);
+                }
+                continue;
+            }
+            seenPrice = true;
+            String label = m.group(1).trim();
+            double price = Double.parseDouble(m.group(2).replace(',', '.'));
+            if (!m.group(3).isEmpty()) {
+                price = -price;
+            }
+            String key = label.toUpperCase(Locale.ROOT).replace(" ", "");
+
+            if (key.contains("SUBTOTAL")) {
+                bill.setSubTotal(price);
+            } else if (key.contains("TAX") || key.contains("HST") || key.contains("GST") || key.contains("VAT")) {
+                bill.setTaxTotal(bill.getTaxTotal() + price);
+            } else if (key.contains("TOTAL")) {
+                // First TOTAL wins; later ones are usually tender summaries
+                if (bill.getTotal() == 0) {
+                    bill.setTotal(price);
+                }
+            } else if (isIgnored(key) || bill.getTotal() != 0) {
+                continue;
+            } else if (price < 0 && !items.isEmpty()) {
+                ItemsDTO previous = items.get(items.size() - 1);
+                previous.setPrice(round(previous.getPrice() + price));
+            } else {
+                ItemsDTO item = new ItemsDTO();
+                item.setDescription(label);
+                item.setPrice(price);
+                items.add(item);
+            }
+        }
+
+        if (!header.isEmpty()) {
+            bill.setStoreName(header.get(0));
+        }
+        if (header.size() > 1) {
+            bill.setStoreAddress(String.join(", ", header.subList(1, Math.min(header.size(), 3))));
+        }
+        bill.setItems(items);
+        return bill;
+    }
+
+    private static boolean isIgnored(String key) {
+        for (String keyword : IGNORED_KEYWORDS) {
+            if (key.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the first real calendar date on the line as YYYY-MM-DD, or "" if there is none. */
+    private static String parseDate(String line) {
+        Matcher iso = ISO_DATE.matcher(line);
+        while (iso.find()) {
+            String date = toIsoDate(iso.group(1), iso.group(2), iso.group(3));
+            if (!date.isEmpty()) {
+                return date;
+            }
+        }
+        Matcher us = US_DATE.matcher(line);
+        while (us.find()) {
+            if (us.group(3).length() == 3) {
+                continue;
+            }
+            String year = us.group(3).length() == 2 ? "20" + us.group(3) : us.group(3);
+            String date = toIsoDate(year, us.group(1), us.group(2));
+            if (!date.isEmpty()) {
+                return date;
+            }
+        }
+        return "";
+    }
+
+    private static String toIsoDate(String year, String month, String day) {
+        try {
+            return LocalDate.parse(year + "-" + month + "-" + day, DATE).toString();
+        } catch (DateTimeParseException e) {
+            return "";
+        }
+    }
+
+    private static String parseTime(String line) {
+        Matcher m = TIME.matcher(line);
+        if (!m.find()) {
+            return "";
+        }
+        int hour = Integer.parseInt(m.group(1));
+        int minute = Integer.parseInt(m.group(2));
+        if (m.group(3) != null) {
+            boolean pm = m.group(3).equalsIgnoreCase("PM");
+            hour = hour % 12 + (pm ? 12 : 0);
+        }
+        if (hour > 23 || minute > 59) {
+            return "";
+        }
+        return String.format("%02d:%02d", hour, minute);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
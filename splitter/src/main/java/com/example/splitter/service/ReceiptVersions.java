@@ -0,0 +1,65 @@
+package com.example.splitter.service;
+
+import com.example.splitter.repo.ReceiptVersionRepo;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strong ETags for per-receipt reads, derived from the receipt's version counter so a
+ * conditional GET is answered from one primary-key lookup. Receipts not written since
+ * the counter was introduced are at version 0.
+ */
+@Component
+public class ReceiptVersions {
+
+    @Autowired
+    private ReceiptVersionRepo receiptVersionRepo;
+
+    /**
+     * The resource name keeps the ETags of different views of one receipt distinct, and
+     * the negotiated format those of its JSON and CBOR encodings.
+     */
+    public String etag(String resource, Long receiptId, WebRequest request) {
+        long version = receiptVersionRepo.findVersion(receiptId).orElse(0L);
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+        return "\"" + resource + "-" + receiptId + "-" + version + "-" + format(request) + "\"";
+    }
+
+    // Mirrors converter order: JSON wins unless the client prefers CBOR
+    private static String format(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "json";
+        }
+        try {
+            List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+            for (MediaType type : accepted) {
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return "json";
+                }
+                if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return "cbor";
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Spring rejects the request anyway; any tag will do
+        }
+        return "json";
+    }
+}
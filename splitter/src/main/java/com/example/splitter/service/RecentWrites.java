@@ -0,0 +1,126 @@
+package com.example.splitter.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipts mutated within the last replica-lag window. Reads of such a receipt are
+ * pinned to the primary so a client always sees what it just wrote.
+ *
+ * The window is kept in this JVM and also handed to the client: a write answers with a
+ * Recent-Writes header ({@code receiptId=expiresAtEpochMs, ...}) that the client sends
+ * back on later requests, so read-your-writes holds when the next read lands on another
+ * instance. A forged header can only send that client's own reads to the primary.
+ */
+@Component
+public class RecentWrites {
+
+    public static final String HEADER = "Recent-Writes";
+
+    // Receipts written earlier in the current request, so one header carries all of them
+    private static final String WRITTEN_ATTRIBUTE = RecentWrites.class.getName() + ".written";
+
+    // Keeps the header short for a client that writes a lot of receipts in one window
+    private static final int MAX_HEADER_ENTRIES = 32;
+
+    @Value("${spring.datasource.replica.read-your-writes-ms:5000}")
+    private long windowMs;
+
+    // receiptId -> System.nanoTime() after which replica reads are safe again
+    private final ConcurrentHashMap<Long, Long> expiries = new ConcurrentHashMap<>();
+
+    /** Records a write to the receipt, starting the window when the current transaction commits. */
+    public void markWritten(Long receiptId) {
+        if (receiptId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    touch(receiptId);
+                }
+            });
+        } else {
+            touch(receiptId);
+        }
+    }
+
+    public boolean isRecentlyWritten(Long receiptId) {
+        Long expiresAt = expiries.get(receiptId);
+        return expiresAt != null && expiresAt - System.nanoTime() > 0;
+    }
+
+    /** Also honours a window another instance handed to the client in the Recent-Writes header. */
+    public boolean isRecentlyWritten(Long receiptId, HttpServletRequest request) {
+        return isRecentlyWritten(receiptId) || parse(request.getHeader(HEADER)).containsKey(receiptId);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    void evictExpired() {
+        long now = System.nanoTime();
+        expiries.values().removeIf(expiresAt -> expiresAt - now <= 0);
+    }
+
+    private void touch(Long receiptId) {
+        expiries.put(receiptId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs));
+        handToClient(receiptId);
+    }
+
+    // Runs on commit, before the handler's response body is written, so the header still goes out
+    private void handToClient(Long receiptId) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)
+                || attributes.getResponse() == null) {
+            return;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        HttpServletResponse response = attributes.getResponse();
+        @SuppressWarnings("unchecked")
+        Map<Long, Long> written = (Map<Long, Long>) request.getAttribute(WRITTEN_ATTRIBUTE);
+        if (written == null) {
+            written = parse(request.getHeader(HEADER));
+            request.setAttribute(WRITTEN_ATTRIBUTE, written);
+        }
+        written.remove(receiptId);
+        written.put(receiptId, System.currentTimeMillis() + windowMs);
+        while (written.size() > MAX_HEADER_ENTRIES) {
+            written.remove(written.keySet().iterator().next());
+        }
+        StringJoiner header = new StringJoiner(", ");
+        written.forEach((id, expiresAt) -> header.add(id + "=" + expiresAt));
+        response.setHeader(HEADER, header.toString());
+    }
+
+    /** Unexpired entries of a Recent-Writes header, oldest write first; malformed entries are skipped. */
+    private static Map<Long, Long> parse(String header) {
+        Map<Long, Long> written = new LinkedHashMap<>();
+        if (header == null) {
+            return written;
+        }
+        long now = System.currentTimeMillis();
+        for (String entry : header.split(",")) {
+            String[] parts = entry.trim().split("=");
+            try {
+                if (parts.length == 2 && Long.parseLong(parts[1]) > now) {
+                    written.put(Long.valueOf(parts[0]), Long.valueOf(parts[1]));
+                }
+            } catch (NumberFormatException e) {
+                // Not ours to fail the request over
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.splitter.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** The per-user settlement arithmetic shared by the split endpoints and the spend rollups. */
+public final class SettlementMath {
+
+    private SettlementMath() {
+    }
+
+    /**
+     * A user's item costs plus their share of the receipt's tax, which is split in
+     * proportion to their part of the subtotal. Rounded to three places.
+     */
+    public static double totalWithTax(double userSubtotal, double subTotal, double taxTotal) {
+        double taxShare = 0.0;
+        if (subTotal > 0) {
+            taxShare = BigDecimal.valueOf(userSubtotal)
+                    .divide(BigDecimal.valueOf(subTotal), 10, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(taxTotal))
+                    .setScale(3, RoundingMode.HALF_UP)
+                    .doubleValue();
+        }
+        return round(userSubtotal + taxShare);
+    }
+
+    /** {@link #totalWithTax} for every user, keeping the iteration order of the input. */
+    public static Map<Long, Double> userTotals(Map<Long, Double> userSubtotals, double subTotal, double taxTotal) {
+        Map<Long, Double> totals = new LinkedHashMap<>();
+        for (Map.Entry<Long, Double> entry : userSubtotals.entrySet()) {
+            totals.put(entry.getKey(), totalWithTax(entry.getValue(), subTotal, taxTotal));
+        }
+        return totals;
+    }
+
+    public static double round(double amount) {
+        return new BigDecimal(amount).setScale(3, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.splitter.service;
+
+import com.example.splitter.repo.SettlementRepo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Per-user totals for many receipts at once, with the same arithmetic as /math/split.
+ * Receipts are processed in chunks: each chunk is loaded with two streamed queries,
+ * its receipts are settled in slices on a fixed worker pool shared by all requests,
+ * and the results are written out as NDJSON, one line per receipt, before the next
+ * chunk is loaded. Memory stays bounded by the chunk size however many receipts are
+ * requested, and CPU by the pool size however many requests run at once.
+ */
+@Service
+public class SettlementService {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Receipts per request; larger runs should be split by the caller
+    private static final int MAX_RECEIPTS = 100_000;
+
+    private record BillTotals(double subTotal, double taxTotal) {
+    }
+
+    @Autowired
+    private SettlementRepo settlementRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${settlement.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${settlement.parallelism:4}")
+    private int parallelism;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    void startWorkers() {
+        workers = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("settlement-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        workers.shutdownNow();
+    }
+
+    // Typed as StreamingResponseBody so Spring writes it asynchronously; errors carry no body
+    public ResponseEntity<StreamingResponseBody> settle(List<Long> receiptIds) {
+        if (receiptIds == null || receiptIds.isEmpty() || receiptIds.size() > MAX_RECEIPTS
+                || receiptIds.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> ordered = new ArrayList<>(new TreeSet<>(receiptIds));
+        StreamingResponseBody body = out -> write(ordered, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private void write(List<Long> receiptIds, OutputStream out) throws IOException {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            for (int from = 0; from < receiptIds.size(); from += chunkSize) {
+                List<Long> chunk = receiptIds.subList(from, Math.min(from + chunkSize, receiptIds.size()));
+                Map<Long, BillTotals> bills = new HashMap<>();
+                Map<Long, Map<Long, Double>> userSubtotals = new HashMap<>();
+                readOnly.executeWithoutResult(status -> load(chunk, bills, userSubtotals));
+
+                for (List<Map<String, Object>> settled : settleInSlices(chunk, bills, userSubtotals)) {
+                    for (Map<String, Object> line : settled) {
+                        generator.writeObject(line);
+                        generator.writeRaw('\n');
+                    }
+                }
+                generator.flush();
+            }
+        }
+    }
+
+    // One task per slice rather than per receipt, which is far too little work for a task;
+    // results come back in chunk order
+    private List<List<Map<String, Object>>> settleInSlices(List<Long> chunk, Map<Long, BillTotals> bills,
+                                                           Map<Long, Map<Long, Double>> userSubtotals) throws IOException {
+        int sliceSize = Math.max(1, (chunk.size() + parallelism - 1) / parallelism);
+        List<Future<List<Map<String, Object>>>> pending = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<Long> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            pending.add(workers.submit(() -> slice.stream()
+                    .map(receiptId -> settle(receiptId, bills.get(receiptId), userSubtotals.get(receiptId)))
+                    .toList()));
+        }
+        List<List<Map<String, Object>>> settled = new ArrayList<>(pending.size());
+        try {
+            for (Future<List<Map<String, Object>>> slice : pending) {
+                settled.add(slice.get());
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(slice -> slice.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Settlement interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Settlement failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return settled;
+    }
+
+    private void load(List<Long> chunk, Map<Long, BillTotals> bills, Map<Long, Map<Long, Double>> userSubtotals) {
+        settlementRepo.forEachBill(chunk, rs -> bills.put(rs.getLong("receipt_id"),
+                new BillTotals(rs.getDouble("sub_total"), rs.getDouble("tax_total"))));
+        settlementRepo.forEachShare(chunk, rs -> userSubtotals
+                .computeIfAbsent(rs.getLong("receipt_id"), id -> new LinkedHashMap<>())
+                .merge(rs.getLong("user_id"), rs.getDouble("cost"), Double::sum));
+    }
+
+    private Map<String, Object> settle(Long receiptId, BillTotals bill, Map<Long, Double> subtotals) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("receiptId", receiptId);
+        if (subtotals == null) {
+            line.put("error", "No splits found for receiptId: " + receiptId);
+            return line;
+        }
+        // Same fallback as /math/split when the bill row is missing
+        double subTotal = bill == null ? 0.0 : bill.subTotal();
+        double taxTotal = bill == null ? 0.0 : bill.taxTotal();
+
+        List<Map<String, Object>> users = new ArrayList<>(subtotals.size());
+        for (Map.Entry<Long, Double> entry : SettlementMath.userTotals(subtotals, subTotal, taxTotal).entrySet()) {
+            Map<String, Object> user = new LinkedHashMap<>();
+            user.put("userId", entry.getKey());
+            user.put("totalCost", entry.getValue());
+            users.add(user);
+        }
+        line.put("users", users);
+        line.put("subTotal", SettlementMath.round(subTotal));
+        line.put("tax", SettlementMath.round(taxTotal));
+        line.put("grandTotal", SettlementMath.round(subTotal + taxTotal));
+        return line;
+    }
+}
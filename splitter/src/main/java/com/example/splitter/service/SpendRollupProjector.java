@@ -0,0 +1,154 @@
+package com.example.splitter.service;
+
+import com.example.splitter.model.ReceiptEvent;
+import com.example.splitter.model.StoreSpendContribution;
+import com.example.splitter.model.UserSpendContribution;
+import com.example.splitter.repo.SpendRollupRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maintains daily spend rollups per user name and per store. Any event on a receipt
+ * recomputes that receipt's contribution from the current rows, so replaying an event
+ * twice or out of date order cannot skew the totals.
+ *
+ * Users are rows per receipt, so spend is rolled up by user name. Receipts whose date
+ * is not ISO yyyy-MM-dd are left out, since they cannot be placed on a day.
+ *
+ * Archived receipts are no longer in the tables, so their contributions are frozen:
+ * refreshes skip them and a rebuild keeps them instead of dropping that history.
+ */
+@Component
+public class SpendRollupProjector implements BackfillingProjector {
+
+    private static final String UNKNOWN = "(unknown)";
+
+    @Autowired
+    private SpendRollupRepo spendRollupRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${analytics.backfill.parallelism:4}")
+    private int parallelism;
+
+    @Value("${analytics.backfill.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public String name() {
+        return "spend-rollups";
+    }
+
+    @Override
+    public void apply(List<ReceiptEvent> events) {
+        Set<Long> receiptIds = new LinkedHashSet<>();
+        for (ReceiptEvent event : events) {
+            receiptIds.add(event.getReceiptId());
+        }
+        refresh(receiptIds);
+    }
+
+    @Override
+    public void reset() {
+        spendRollupRepo.deleteAllButArchived();
+    }
+
+    @Override
+    public long backfill() {
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Integer>> pending = new ArrayList<>();
+            long after = 0;
+            List<Long> page;
+            // Pages are read here and refreshed by the workers, each in its own transaction
+            while (!(page = spendRollupRepo.findReceiptIdsAfter(after, batchSize)).isEmpty()) {
+                after = page.get(page.size() - 1);
+                List<Long> receiptIds = page;
+                pending.add(workers.submit(() -> {
+                    transactionTemplate.executeWithoutResult(status -> refresh(receiptIds));
+                    return receiptIds.size();
+                }));
+            }
+            long receipts = 0;
+            for (Future<Integer> done : pending) {
+                receipts += done.get();
+            }
+            return receipts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Spend rollup backfill interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Spend rollup backfill failed: " + e.getMessage(), e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void refresh(Collection<Long> receiptIds) {
+        if (receiptIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Object>> bills = spendRollupRepo.findBills(receiptIds);
+        // Checked after reading the bills, so a receipt archived in between is skipped rather than seen as deleted
+        Set<Long> archived = spendRollupRepo.findArchived(receiptIds);
+        if (!archived.isEmpty()) {
+            receiptIds = receiptIds.stream().filter(id -> !archived.contains(id)).toList();
+            bills.keySet().removeAll(archived);
+            if (receiptIds.isEmpty()) {
+                return;
+            }
+        }
+
+        List<StoreSpendContribution> stores = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Object>> entry : bills.entrySet()) {
+            Map<String, Object> bill = entry.getValue();
+            stores.add(new StoreSpendContribution(entry.getKey(), nameOrUnknown((String) bill.get("storeName")),
+                    parseDate((String) bill.get("date")), (Double) bill.get("total")));
+        }
+
+        List<UserSpendContribution> users = new ArrayList<>();
+        for (Map<String, Object> row : spendRollupRepo.findUserSubtotals(receiptIds)) {
+            Long receiptId = ((Number) row.get("receipt_id")).longValue();
+            Map<String, Object> bill = bills.get(receiptId);
+            if (bill == null) {
+                continue;
+            }
+            double amount = SettlementMath.totalWithTax(((Number) row.get("subtotal")).doubleValue(),
+                    (Double) bill.get("subTotal"), (Double) bill.get("taxTotal"));
+            users.add(new UserSpendContribution(((Number) row.get("user_id")).longValue(), receiptId,
+                    nameOrUnknown((String) row.get("name")), parseDate((String) bill.get("date")), amount));
+        }
+
+        spendRollupRepo.replaceContributions(receiptIds, users, stores);
+    }
+
+    private static String nameOrUnknown(String name) {
+        return name == null || name.isBlank() ? UNKNOWN : name.trim();
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.example.splitter.repo.BillsRepo;
 import com.example.splitter.repo.ShareRepo;
 import com.example.splitter.repo.SplitRepo;
 import com.example.splitter.repo.UsersRepo;
+import com.example.splitter.repo.UsersRepoCustom;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -17,10 +18,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class SplitService {
@@ -37,24 +42,114 @@ public class SplitService {
     @Autowired
     private BillsRepo billsRepo;
 
-    public ResponseEntity<String> usersInSplit(List<UsersDTO> usersData){
+    @Autowired
+    private EventJournal eventJournal;
+
+    /**
+     * Upserts the given users keyed on (receiptId, userId) in one transaction: users
+     * without an id, or with an id unknown to the database, are inserted with a
+     * generated id; users already on the receipt are updated. With replace=true, users
+     * of the affected receipts missing from the payload are removed. Ids that belong
+     * to a different receipt are left untouched and reported as conflicts.
+     */
+    @Transactional
+    public ResponseEntity<Map> usersInSplit(List<UsersDTO> usersData, boolean replace){
         // Logic to process users in a split
         if (usersData == null) {
-            return ResponseEntity.badRequest().body("Request body must be a non-empty JSON array of UsersDTO");
+            return ResponseEntity.badRequest().body(Map.of("error", "Request body must be a non-empty JSON array of UsersDTO"));
         }
+        Set<Long> receiptIds = new HashSet<>();
+        // A user listed twice would hit one row twice in a single statement; the last entry wins
+        Map<Long, UsersDTO> byUserId = new LinkedHashMap<>();
+        List<UsersDTO> unique = new ArrayList<>();
         for (UsersDTO dto : usersData) {
-            usersRepo.deleteByReceiptIdAndUserId(dto.getReceiptId(), dto.getUserId());
+            if (dto.getReceiptId() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Every user must have a receiptId"));
+            }
+            receiptIds.add(dto.getReceiptId());
+            if (dto.getUserId() == null) {
+                unique.add(dto);
+            } else {
+                byUserId.put(dto.getUserId(), dto);
+            }
+        }
+        unique.addAll(byUserId.values());
+
+        List<Users> rows = new ArrayList<>();
+        for (UsersDTO dto : unique) {
             Users users = new Users();
             users.setReceiptId(dto.getReceiptId());
             users.setUserId(dto.getUserId());
             users.setAmount(dto.getAmount());
             users.setName(dto.getName());
-            usersRepo.save(users);
+            rows.add(users);
+        }
+        List<Long> freshIds = usersRepo.allocateIds(rows.size());
+        Set<Long> fresh = new HashSet<>(freshIds);
+        Map<List<Long>, Boolean> written = new HashMap<>();
+        for (UsersRepoCustom.UpsertedUser row : usersRepo.upsertAll(rows, freshIds)) {
+            written.put(List.of(row.userId(), row.receiptId()), row.inserted());
+        }
+
+        // Matched back to the payload on (userId, receiptId), never on result order
+        List<Users> inserted = new ArrayList<>();
+        List<Users> updated = new ArrayList<>();
+        List<Long> conflicts = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Users users = rows.get(i);
+            // An id equal to a just-allocated one cannot have existed before this statement
+            Boolean requestedInserted = users.getUserId() == null || fresh.contains(users.getUserId())
+                    ? null
+                    : written.get(List.of(users.getUserId(), users.getReceiptId()));
+            if (requestedInserted != null) {
+                (requestedInserted ? inserted : updated).add(users);
+            } else if (written.containsKey(List.of(freshIds.get(i), users.getReceiptId()))) {
+                users.setUserId(freshIds.get(i));
+                inserted.add(users);
+            } else {
+                conflicts.add(users.getUserId());
+            }
+        }
+
+        Map<Long, Long> removed = new HashMap<>();
+        if (replace) {
+            List<Long> kept = new ArrayList<>();
+            inserted.forEach(users -> kept.add(users.getUserId()));
+            updated.forEach(users -> kept.add(users.getUserId()));
+            removed = usersRepo.deleteAllExcept(receiptIds, kept);
         }
+        journalUsers(inserted, updated, removed);
 
-        return ResponseEntity.ok("Users processed in split successfully");
+        Map<String, Object> response = new HashMap<>();
+        response.put("inserted", inserted.stream().map(Users::getUserId).toList());
+        response.put("updated", updated.stream().map(Users::getUserId).toList());
+        response.put("removed", new ArrayList<>(removed.keySet()));
+        response.put("conflicts", conflicts);
+        return ResponseEntity.ok(response);
     }
 
+    // One USERS_UPSERTED event per affected receipt
+    private void journalUsers(List<Users> inserted, List<Users> updated, Map<Long, Long> removed) {
+        Map<Long, Map<String, List<Object>>> byReceipt = new HashMap<>();
+        for (Users user : inserted) {
+            byReceipt.computeIfAbsent(user.getReceiptId(), id -> newUsersPayload()).get("upserted").add(user);
+        }
+        for (Users user : updated) {
+            byReceipt.computeIfAbsent(user.getReceiptId(), id -> newUsersPayload()).get("upserted").add(user);
+        }
+        removed.forEach((userId, receiptId) ->
+                byReceipt.computeIfAbsent(receiptId, id -> newUsersPayload()).get("removed").add(userId));
+        byReceipt.forEach((receiptId, payload) -> eventJournal.append(receiptId, EventJournal.USERS_UPSERTED, payload));
+    }
+
+    private static Map<String, List<Object>> newUsersPayload() {
+        Map<String, List<Object>> payload = new HashMap<>();
+        payload.put("upserted", new ArrayList<>());
+        payload.put("removed", new ArrayList<>());
+        return payload;
+    }
+
+    @Transactional(readOnly = true)
     public ResponseEntity<Optional<List<Users>>> getUsersInSplit(Long receiptId){
         // Logic to get splits by receipt ID
         List<Users> users = usersRepo.findByReceiptId(receiptId);
@@ -75,9 +170,11 @@ public class SplitService {
             return ResponseEntity.badRequest().body("UserId " + userId + " does not exist in Users table");
         }
         usersRepo.deleteByReceiptIdAndUserId(receiptId, userId);
+        eventJournal.append(receiptId, EventJournal.USER_DELETED, Map.of("userId", userId));
         return ResponseEntity.ok("User with userId: " + userId + " deleted from receiptId: " + receiptId);
     }
 
+    @Transactional
     public ResponseEntity<String> shareBill(Long receiptId, List<Split> splitData){
         // Logic to share bill among users
         // This is a placeholder implementation; actual logic will depend on requirements
@@ -85,12 +182,17 @@ public class SplitService {
             return ResponseEntity.badRequest().body("Request body must be a non-empty JSON array of Share objects");
         }
 
+        // Validate everything up front so a bad user id cannot leave the bill half-shared
         for (Split splitItem : splitData) {
             for (Share shareDto : splitItem.getShares()) {
                 if (!usersRepo.existsByUserId(shareDto.getUserId())) {
                     return ResponseEntity.badRequest().body("UserId " + shareDto.getUserId() + " does not exist in Users table");
                 }
             }
+        }
+
+        List<Map<String, Object>> journaled = new ArrayList<>();
+        for (Split splitItem : splitData) {
             Split split = new Split();
             split.setReceiptId(receiptId);
             split.setItemId(splitItem.getItemId());
@@ -120,10 +222,20 @@ public class SplitService {
 
             split.setShares(shares);
             splitRepo.save(split);
+
+            Map<String, Object> item = new HashMap<>();
+            item.put("itemId", split.getItemId());
+            item.put("price", split.getPrice());
+            item.put("shares", shares.stream()
+                    .map(share -> Map.of("userId", share.getUserId(), "share", share.getShare(), "cost", share.getCost()))
+                    .toList());
+            journaled.add(item);
         }
+        eventJournal.append(receiptId, EventJournal.SHARES_UPDATED, journaled);
         return ResponseEntity.ok("Bill shared successfully for receiptId: " + receiptId);
     }
 
+    @Transactional(readOnly = true)
     public ResponseEntity<Optional<List<Share>>> getBillShare(Long receiptId){
         // Logic to get bill share by receipt ID
         List<Share> shares = shareRepo.findByReceiptId(receiptId);
@@ -138,6 +250,7 @@ public class SplitService {
         return ResponseEntity.ok(Optional.of(shares));
     }
 
+    @Transactional(readOnly = true)
     public ResponseEntity<String> getShareByReceiptId(Long receiptId) {
         List<Share> shares = shareRepo.findByReceiptId(receiptId);
         if (shares.isEmpty()) {
@@ -162,35 +275,17 @@ public class SplitService {
         }
         
         StringBuilder result = new StringBuilder("Total cost per user:\n");
-        for (Map.Entry<Long, Double> entry : userSubtotalCost.entrySet()) {
-            // Calculate proportional tax share
-            double taxShare = 0.0;
-            if (totalSubtotal > 0) {
-                taxShare = BigDecimal.valueOf(entry.getValue())
-                        .divide(BigDecimal.valueOf(totalSubtotal), 10, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(taxTotal))
-                        .setScale(3, RoundingMode.HALF_UP)
-                        .doubleValue();
-            }
-            
-            // Total cost = subtotal + tax share
-            double totalCost = entry.getValue() + taxShare;
-            double rounded = new BigDecimal(totalCost)
-                    .setScale(3, RoundingMode.HALF_UP)
-                    .doubleValue();
-            
+        // Total cost = subtotal + proportional tax share
+        for (Map.Entry<Long, Double> entry : SettlementMath.userTotals(userSubtotalCost, totalSubtotal, taxTotal).entrySet()) {
             result.append("UserId: ").append(entry.getKey())
-                    .append(", Total Cost: ").append(rounded)
+                    .append(", Total Cost: ").append(entry.getValue())
                     .append("\n");
         }
         
         // Add tax and total information
-        result.append("Subtotal: ").append(new BigDecimal(totalSubtotal)
-                .setScale(3, RoundingMode.HALF_UP).doubleValue()).append("\n");
-        result.append("Tax: ").append(new BigDecimal(taxTotal)
-                .setScale(3, RoundingMode.HALF_UP).doubleValue()).append("\n");
-        result.append("Grand Total: ").append(new BigDecimal(totalSubtotal + taxTotal)
-                .setScale(3, RoundingMode.HALF_UP).doubleValue());
+        result.append("Subtotal: ").append(SettlementMath.round(totalSubtotal)).append("\n");
+        result.append("Tax: ").append(SettlementMath.round(taxTotal)).append("\n");
+        result.append("Grand Total: ").append(SettlementMath.round(totalSubtotal + taxTotal));
         
         // Debug logging
         System.out.println("SplitService - Tax total: " + taxTotal);
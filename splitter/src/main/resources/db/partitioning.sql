@@ -0,0 +1,108 @@
+-- One-time migration: range-partition bills, items and share by receipt_id.
+--
+-- Run with the application stopped:
+--   psql -U postgres -d splitter -f partitioning.sql
+-- then start it with archive.partitioning.enabled=true so ReceiptPartitionMaintainer
+-- keeps creating partitions ahead of the highest receipt id. ReceiptArchiver moves
+-- whole partitions to disk and drops them.
+--
+-- Partitioned tables need the partition key in every unique constraint, so the
+-- primary keys of items and share become (id, receipt_id). split and users stay
+-- unpartitioned: split keeps its item_id primary key, which share.split_id references.
+-- Identity columns cannot be copied onto a partitioned table before PostgreSQL 17, so
+-- ids come from plain sequences owned by the new columns. The old tables are kept as
+-- *_unpartitioned until you drop them.
+--
+-- ddl-auto=update cannot see foreign keys on partitioned tables, so Hibernate logs a
+-- harmless "constraint ... already exists" warning for the two moved below on startup.
+
+BEGIN;
+
+-- Creates <parent>_p<k> partitions of width step covering receipt ids below upto.
+CREATE OR REPLACE FUNCTION splitter_ensure_partitions(parent text, upto bigint, step bigint)
+RETURNS void LANGUAGE plpgsql AS $$
+DECLARE
+    k bigint;
+BEGIN
+    FOR k IN 0 .. (upto / step) LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                       parent || '_p' || k, parent, k * step, (k + 1) * step);
+    END LOOP;
+END $$;
+
+-- Foreign keys of items and share are moved to the new tables under the same names
+CREATE TEMP TABLE splitter_foreign_keys (tbl text, conname text, def text) ON COMMIT DROP;
+
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT conrelid::regclass::text AS tbl, conname, pg_get_constraintdef(oid) AS def FROM pg_constraint
+             WHERE contype = 'f' AND conrelid::regclass::text IN ('items', 'share')
+    LOOP
+        INSERT INTO splitter_foreign_keys VALUES (r.tbl, r.conname, r.def);
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', r.tbl, r.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE bills RENAME TO bills_unpartitioned;
+ALTER TABLE items RENAME TO items_unpartitioned;
+ALTER TABLE share RENAME TO share_unpartitioned;
+
+-- Index names are schema-wide; free them for the indexes created on the new tables
+ALTER INDEX IF EXISTS idx_items_description_trgm RENAME TO idx_items_description_trgm_unpartitioned;
+ALTER INDEX IF EXISTS idx_bills_store_name_trgm RENAME TO idx_bills_store_name_trgm_unpartitioned;
+ALTER INDEX IF EXISTS idx_bills_store_address_trgm RENAME TO idx_bills_store_address_trgm_unpartitioned;
+ALTER INDEX IF EXISTS idx_items_description_trgm_gist RENAME TO idx_items_description_trgm_gist_unpartitioned;
+ALTER INDEX IF EXISTS idx_bills_store_name_trgm_gist RENAME TO idx_bills_store_name_trgm_gist_unpartitioned;
+ALTER INDEX IF EXISTS idx_bills_store_address_trgm_gist RENAME TO idx_bills_store_address_trgm_gist_unpartitioned;
+
+-- Drops the identity sequences, so their names can be reused below
+ALTER TABLE bills_unpartitioned ALTER COLUMN receipt_id DROP IDENTITY IF EXISTS;
+ALTER TABLE items_unpartitioned ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE share_unpartitioned ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE TABLE bills (LIKE bills_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (receipt_id);
+CREATE SEQUENCE bills_receipt_id_seq OWNED BY bills.receipt_id;
+ALTER TABLE bills ALTER COLUMN receipt_id SET DEFAULT nextval('bills_receipt_id_seq');
+ALTER TABLE bills ADD PRIMARY KEY (receipt_id);
+
+CREATE TABLE items (LIKE items_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (receipt_id);
+CREATE SEQUENCE items_id_seq OWNED BY items.id;
+ALTER TABLE items ALTER COLUMN id SET DEFAULT nextval('items_id_seq');
+ALTER TABLE items ALTER COLUMN receipt_id SET NOT NULL;
+ALTER TABLE items ADD PRIMARY KEY (id, receipt_id);
+CREATE INDEX idx_items_receipt_id ON items (receipt_id);
+
+CREATE TABLE share (LIKE share_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (receipt_id);
+CREATE SEQUENCE share_id_seq OWNED BY share.id;
+ALTER TABLE share ALTER COLUMN id SET DEFAULT nextval('share_id_seq');
+ALTER TABLE share ALTER COLUMN receipt_id SET NOT NULL;
+ALTER TABLE share ADD PRIMARY KEY (id, receipt_id);
+CREATE INDEX idx_share_receipt_id ON share (receipt_id);
+CREATE INDEX idx_share_split_id ON share (split_id);
+
+-- 100k receipts per partition; must match archive.partitioning.step
+SELECT splitter_ensure_partitions(t, (SELECT COALESCE(MAX(receipt_id), 0) FROM bills_unpartitioned) + 200000, 100000)
+FROM unnest(ARRAY['bills', 'items', 'share']) AS t;
+
+INSERT INTO bills SELECT * FROM bills_unpartitioned;
+INSERT INTO items SELECT * FROM items_unpartitioned;
+INSERT INTO share SELECT * FROM share_unpartitioned;
+
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT * FROM splitter_foreign_keys
+    LOOP
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I %s', r.tbl, r.conname, r.def);
+    END LOOP;
+END $$;
+
+-- Continue the sequences after the copied rows
+SELECT setval('bills_receipt_id_seq', (SELECT COALESCE(MAX(receipt_id), 0) + 1 FROM bills), false);
+SELECT setval('items_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM items), false);
+SELECT setval('share_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM share), false);
+
+COMMIT;
@@ -0,0 +1,221 @@
+package com.example.splitter;
+
+import com.example.splitter.controller.ocrController;
+import com.example.splitter.controller.splitController;
+import com.example.splitter.model.Bills;
+import com.example.splitter.model.Share;
+import com.example.splitter.model.Users;
+import com.example.splitter.repo.BillsRepo;
+import com.example.splitter.repo.ReceiptVersionRepo;
+import com.example.splitter.repo.ShareRepo;
+import com.example.splitter.repo.SplitRepo;
+import com.example.splitter.repo.UsersRepo;
+import com.example.splitter.service.EventJournal;
+import com.example.splitter.service.LocalOcrReceiptExtractor;
+import com.example.splitter.service.OcrAdmissionControl;
+import com.example.splitter.service.OcrService;
+import com.example.splitter.service.OpenAiReceiptExtractor;
+import com.example.splitter.service.ReceiptArchiver;
+import com.example.splitter.service.ReceiptHashIndex;
+import com.example.splitter.service.ReceiptImageStore;
+import com.example.splitter.service.ReceiptSearchService;
+import com.example.splitter.service.ReceiptVersions;
+import com.example.splitter.service.RecentWrites;
+import com.example.splitter.service.SettlementService;
+import com.example.splitter.service.SplitService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+@WebMvcTest(controllers = {ocrController.class, splitController.class})
+@Import({OcrService.class, SplitService.class, ReceiptVersions.class, SimpleMeterRegistry.class})
+class ContentNegotiationTests {
+
+	private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@MockitoBean
+	private BillsRepo billsRepo;
+
+	@MockitoBean
+	private UsersRepo usersRepo;
+
+	@MockitoBean
+	private SplitRepo splitRepo;
+
+	@MockitoBean
+	private ShareRepo shareRepo;
+
+	@MockitoBean
+	private ReceiptVersionRepo receiptVersionRepo;
+
+	@MockitoBean
+	private LocalOcrReceiptExtractor localReceiptExtractor;
+
+	@MockitoBean
+	private OpenAiReceiptExtractor openAiReceiptExtractor;
+
+	@MockitoBean
+	private ReceiptHashIndex receiptHashIndex;
+
+	@MockitoBean
+	private ReceiptImageStore receiptImageStore;
+
+	@MockitoBean
+	private EventJournal eventJournal;
+
+	@MockitoBean
+	private ReceiptArchiver receiptArchiver;
+
+	@MockitoBean
+	private ReceiptSearchService receiptSearchService;
+
+	@MockitoBean
+	private SettlementService settlementService;
+
+	@MockitoBean
+	private RecentWrites recentWrites;
+
+	@MockitoBean
+	private OcrAdmissionControl ocrAdmissionControl;
+
+	@BeforeEach
+	void receipt() throws IOException {
+		Bills bills = new Bills();
+		bills.setReceiptId(1L);
+		bills.setStoreName("Corner Shop");
+		bills.setDate("2024-03-01");
+		bills.setSubTotal(10.0);
+		bills.setTaxTotal(1.0);
+		bills.setTotal(11.0);
+		bills.setImageId("img-1");
+		bills.setItems(List.of());
+		when(billsRepo.findByReceiptId(1L)).thenReturn(Optional.of(bills));
+		when(billsRepo.findFirstByImageIdOrderByReceiptIdAsc("img-1")).thenReturn(Optional.of(bills));
+		when(receiptImageStore.store(any())).thenReturn("img-1");
+		when(receiptVersionRepo.findVersion(1L)).thenReturn(Optional.of(3L));
+
+		when(usersRepo.findByReceiptId(1L)).thenReturn(List.of(new Users(7L, 1L, "Ana", 10.0)));
+		Share share = new Share();
+		share.setId(1L);
+		share.setUserId(7L);
+		share.setCost(10.0);
+		share.setReceiptId(1L);
+		when(shareRepo.findByReceiptId(1L)).thenReturn(List.of(share));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"application/json", "application/cbor"})
+	void receiptIsEncodedAsNegotiated(String accept) throws Exception {
+		MvcResult result = perform(get("/ocr/receipt").param("id", "1"), accept);
+
+		assertEncoded(result, accept);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"receipt-1-3-" + format(accept) + "\"");
+		assertThat(read(result, accept).path("storeName").asText()).isEqualTo("Corner Shop");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"application/json", "application/cbor"})
+	void extractionIsEncodedAsNegotiated(String accept) throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "receipt.png", "image/png", png());
+
+		MvcResult result = perform(multipart("/ocr/extract").file(file), accept);
+
+		assertEncoded(result, accept);
+		assertThat(read(result, accept).path("duplicateOf").asLong()).isEqualTo(1L);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"application/json", "application/cbor"})
+	void usersAreEncodedAsNegotiated(String accept) throws Exception {
+		MvcResult result = perform(get("/math/users").param("receiptId", "1"), accept);
+
+		assertEncoded(result, accept);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"users-1-3-" + format(accept) + "\"");
+		assertThat(read(result, accept).path(0).path("name").asText()).isEqualTo("Ana");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"application/json", "application/cbor"})
+	void sharesAreEncodedAsNegotiated(String accept) throws Exception {
+		MvcResult result = perform(get("/math/share").param("receiptId", "1"), accept);
+
+		assertEncoded(result, accept);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"share-1-3-" + format(accept) + "\"");
+		assertThat(read(result, accept).path(0).path("cost").asDouble()).isEqualTo(10.0);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"application/json", "application/cbor"})
+	void splitSummaryIsEncodedAsNegotiated(String accept) throws Exception {
+		MvcResult result = perform(get("/math/split").param("receiptId", "1"), accept);
+
+		assertEncoded(result, accept);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"split-1-3-" + format(accept) + "\"");
+		String summary = accept.equals("application/cbor")
+				? CBOR.readValue(result.getResponse().getContentAsByteArray(), String.class)
+				: result.getResponse().getContentAsString();
+		assertThat(summary).startsWith("Total cost per user:").contains("Grand Total: 11.0");
+	}
+
+	private MvcResult perform(MockHttpServletRequestBuilder request, String accept) throws Exception {
+		return mockMvc.perform(request.header(HttpHeaders.ACCEPT, accept)).andReturn();
+	}
+
+	private static void assertEncoded(MvcResult result, String accept) {
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(MediaType.parseMediaType(result.getResponse().getContentType()).equalsTypeAndSubtype(MediaType.parseMediaType(accept)))
+				.as("Content-Type %s for Accept %s", result.getResponse().getContentType(), accept)
+				.isTrue();
+	}
+
+	private JsonNode read(MvcResult result, String accept) throws IOException {
+		return (accept.equals("application/cbor") ? CBOR : objectMapper).readTree(result.getResponse().getContentAsByteArray());
+	}
+
+	private static String format(String accept) {
+		return accept.equals("application/cbor") ? "cbor" : "json";
+	}
+
+	private static byte[] png() throws IOException {
+		BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 32; x++) {
+			image.setRGB(x, x, 0xFFFFFF);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
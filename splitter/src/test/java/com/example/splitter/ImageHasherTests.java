@@ -0,0 +1,80 @@
+package com.example.splitter;
+
+import com.example.splitter.service.ImageHasher;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageHasherTests {
+
+	@Test
+	void sameImageHashesIdentically() throws IOException {
+		byte[] png = encode(blocks(42, 0), "png");
+
+		assertThat(ImageHasher.dHash(png)).isEqualTo(ImageHasher.dHash(png.clone()));
+	}
+
+	@Test
+	void brighterAndRecompressedCopiesLandWithinThreeBits() throws IOException {
+		long original = ImageHasher.dHash(encode(blocks(42, 0), "png"));
+		long brighter = ImageHasher.dHash(encode(blocks(42, 20), "png"));
+		long jpeg = ImageHasher.dHash(encode(blocks(42, 0), "jpg"));
+
+		assertThat(Long.bitCount(original ^ brighter)).isLessThanOrEqualTo(3);
+		assertThat(Long.bitCount(original ^ jpeg)).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	void differentImagesAreFarApart() throws IOException {
+		long first = ImageHasher.dHash(encode(blocks(42, 0), "png"));
+		long second = ImageHasher.dHash(encode(blocks(7, 0), "png"));
+
+		assertThat(Long.bitCount(first ^ second)).isGreaterThan(10);
+	}
+
+	@Test
+	void undecodableBytesHaveNoHash() throws IOException {
+		assertThat(ImageHasher.dHash("not an image".getBytes())).isNull();
+	}
+
+	@Test
+	void hexRoundTripsTheFullSixtyFourBits() {
+		long hash = 0xF00D_CAFE_0000_0001L;
+
+		assertThat(ImageHasher.toHex(hash)).isEqualTo("f00dcafe00000001");
+		assertThat(ImageHasher.fromHex(ImageHasher.toHex(hash))).isEqualTo(hash);
+		assertThat(ImageHasher.fromHex("")).isNull();
+		assertThat(ImageHasher.fromHex("xyz")).isNull();
+		assertThat(ImageHasher.fromHex(null)).isNull();
+	}
+
+	// 9x8 grid of flat grey blocks, 10 px each, so every dHash sample sits inside one block
+	private static BufferedImage blocks(long seed, int brighten) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+		for (int by = 0; by < 8; by++) {
+			for (int bx = 0; bx < 9; bx++) {
+				int grey = 20 + random.nextInt(200) + brighten;
+				int rgb = grey << 16 | grey << 8 | grey;
+				for (int y = by * 10; y < by * 10 + 10; y++) {
+					for (int x = bx * 10; x < bx * 10 + 10; x++) {
+						image.setRGB(x, y, rgb);
+					}
+				}
+			}
+		}
+		return image;
+	}
+
+	private static byte[] encode(BufferedImage image, String format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,117 @@
+package com.example.splitter;
+
+import com.example.splitter.service.OcrAdmissionControl;
+import com.example.splitter.service.OcrAdmissionControl.Decision;
+import com.example.splitter.service.OcrAdmissionControl.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OcrAdmissionControlTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private OcrAdmissionControl admission;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		admission = new OcrAdmissionControl();
+		ReflectionTestUtils.setField(admission, "meterRegistry", meterRegistry);
+		// Slow enough that no token refills while a test runs
+		admission.updateLimits(0.001, 3, 8, 0, 0L);
+	}
+
+	@Test
+	void burstIsAdmittedThenClientIsRateLimited() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			assertThat(admitAndRelease("a").admitted()).isTrue();
+		}
+
+		Decision limited = admission.admit("a");
+		assertThat(limited.outcome()).isEqualTo(Outcome.RATE_LIMITED);
+		assertThat(limited.retryAfterSeconds()).isEqualTo(1000);
+		assertThat(meterRegistry.counter("ocr.admission.rejected", "reason", "rate_limited").count()).isEqualTo(1);
+	}
+
+	@Test
+	void clientsHaveSeparateBuckets() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			admitAndRelease("a");
+		}
+
+		assertThat(admission.admit("a").outcome()).isEqualTo(Outcome.RATE_LIMITED);
+		assertThat(admitAndRelease("b").admitted()).isTrue();
+	}
+
+	@Test
+	void tokensRefillOverTime() throws InterruptedException {
+		admission.updateLimits(50.0, 1, null, null, null);
+		assertThat(admitAndRelease("a").admitted()).isTrue();
+		assertThat(admission.admit("a").outcome()).isEqualTo(Outcome.RATE_LIMITED);
+
+		Thread.sleep(50);
+
+		assertThat(admitAndRelease("a").admitted()).isTrue();
+	}
+
+	@Test
+	void queueFullRejectionReturnsTheToken() throws InterruptedException {
+		admission.updateLimits(null, 2, 1, null, null);
+		assertThat(admission.admit("a").admitted()).isTrue();
+
+		Decision shed = admission.admit("a");
+		assertThat(shed.outcome()).isEqualTo(Outcome.QUEUE_FULL);
+		admission.release();
+
+		// Without the refund the bucket would be empty by now
+		assertThat(admitAndRelease("a").admitted()).isTrue();
+		assertThat(admission.admit("a").outcome()).isEqualTo(Outcome.RATE_LIMITED);
+	}
+
+	@Test
+	void queueTimeoutReturnsTheToken() throws InterruptedException {
+		admission.updateLimits(null, 2, 1, 1, 0L);
+		assertThat(admission.admit("a").admitted()).isTrue();
+
+		assertThat(admission.admit("a").outcome()).isEqualTo(Outcome.QUEUE_TIMEOUT);
+		admission.release();
+
+		assertThat(admitAndRelease("a").admitted()).isTrue();
+		assertThat(meterRegistry.counter("ocr.admission.rejected", "reason", "queue_timeout").count()).isEqualTo(1);
+	}
+
+	@Test
+	void waitingRequestIsAdmittedWhenASlotIsReleased() throws Exception {
+		admission.updateLimits(null, null, 1, 1, 5000L);
+		assertThat(admission.admit("a").admitted()).isTrue();
+
+		CompletableFuture<Decision> waiter = CompletableFuture.supplyAsync(() -> {
+			try {
+				return admission.admit("b");
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (!Integer.valueOf(1).equals(admission.getLimits().get("waiting"))) {
+			Thread.sleep(5);
+		}
+		admission.release();
+
+		assertThat(waiter.get(5, TimeUnit.SECONDS).admitted()).isTrue();
+		admission.release();
+	}
+
+	private Decision admitAndRelease(String clientId) throws InterruptedException {
+		Decision decision = admission.admit(clientId);
+		if (decision.admitted()) {
+			admission.release();
+		}
+		return decision;
+	}
+}
@@ -0,0 +1,264 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+import com.example.splitter.service.OpenAiReceiptExtractor;
+import com.example.splitter.service.ReceiptReconciler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays a synthetic receipt corpus against a local stand-in for the chat completions
+ * API, once with the free-form prompt used before the strict schema (where an
+ * inconsistent result could only be fixed by sending the image again) and once through
+ * OpenAiReceiptExtractor (strict schema plus text-only re-ask). Reports the median
+ * and mean tokens per receipt and how many full re-extractions each needed.
+ *
+ * The stub bills tokens the way the API does, roughly: four characters of request or
+ * reply per token (the schema in response_format included) and a flat 765 per image.
+ * Its error rates are assumptions, not measurements: an image pass misreads a discount
+ * line one time in four, and a re-ask fixes the named fields nine times in ten. The
+ * numbers therefore compare what each flow spends for a given error rate.
+ *
+ * mvn test -Dtest=OpenAiPromptComparisonTests -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OpenAiPromptComparisonTests {
+
+	private static final int RECEIPTS = 400;
+	private static final int MAX_EXTRACTIONS = 4;
+	private static final int IMAGE_TOKENS = 765;
+	private static final double MISREAD_RATE = 0.25;
+	private static final double REASK_FIX_RATE = 0.9;
+
+	// The system prompt as it was before the strict schema
+	private static final String PREVIOUS_PROMPT = "You are a strict receipt-to-JSON extractor. Read the provided image and output ONLY one JSON object that matches the exact schema below, The prices have to be accurate, check them rigourously. \n" +
+			"ABSOLUTE RULES:\n" +
+			"- Do not add, rename, or remove keys from the schema. No extra metadata, notes, or null fields.\n" +
+			"- Do not hallucinate values. Only use what is clearly printed on the receipt.\n" +
+			"- some bills have dicounts on the below line with the discount followed by '-' symbol,subtract this from the previous entries price to get the correct price\n" +
+			"- If a value is missing/unclear, use an empty string for text fields and 0 for numbers.\n" +
+			"- Prices are decimals without currency symbols. Date = YYYY-MM-DD, time = HH:MM (24h).\n" +
+			"- Items: if quantity is printed, multiply unit price × quantity to set \"price\"; if not printed, assume quantity 1.\n" +
+			"- Trim whitespace and preserve on-receipt wording for item descriptions where legible.\n" +
+			"- Return raw JSON only (no markdown, no commentary).\n" +
+			"\n" +
+			"SCHEMA:\n" +
+			"{\n" +
+			"  \"storeName\": \"string\",\n" +
+			"  \"storeAddress\": \"string\",\n" +
+			"  \"date\": \"string\",\n" +
+			"  \"time\": \"string\",\n" +
+			"  \"items\": [\n" +
+			"    { \"description\": \"string\", \"price\": \"number\" }\n" +
+			"  ],\n" +
+			"  \"subTotal\": \"number\",\n" +
+			"  \"taxTotal\": \"number\",\n" +
+			"  \"total\": \"number\"\n" +
+			"}\n";
+
+	private static final Pattern IMAGE_DATA = Pattern.compile("data:image/png;base64,([A-Za-z0-9+/=]+)");
+	private static final Pattern STORE_NAME = Pattern.compile("Store (\\d+)");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final RestTemplate restTemplate = new RestTemplate();
+	private HttpServer stub;
+	private String url;
+
+	// Per receipt: tokens billed and image passes made, reset between the two runs
+	private final Map<Integer, Integer> tokens = new HashMap<>();
+	private final Map<Integer, Integer> imageCalls = new HashMap<>();
+	private final Map<Integer, Integer> reaskCalls = new HashMap<>();
+
+	@BeforeEach
+	void startStub() throws IOException {
+		stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		stub.createContext("/v1/chat/completions", this::complete);
+		stub.start();
+		url = "http://127.0.0.1:" + stub.getAddress().getPort() + "/v1/chat/completions";
+	}
+
+	@AfterEach
+	void stopStub() {
+		stub.stop(0);
+	}
+
+	@Test
+	void strictSchemaWithReaskAgainstThePreviousPrompt() throws Exception {
+		int previousReextractions = 0;
+		for (int receipt = 0; receipt < RECEIPTS; receipt++) {
+			previousReextractions += extractions(receipt, this::extractWithPreviousPrompt) - 1;
+		}
+		Map<Integer, Integer> previousTokens = new HashMap<>(tokens);
+		tokens.clear();
+		imageCalls.clear();
+
+		OpenAiReceiptExtractor extractor = new OpenAiReceiptExtractor();
+		ReflectionTestUtils.setField(extractor, "openaiApiKey", "stub");
+		ReflectionTestUtils.setField(extractor, "openaiApiUrl", url);
+		ReflectionTestUtils.setField(extractor, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(extractor, "reaskModel", "gpt-4o-mini");
+		ReflectionTestUtils.setField(extractor, "maxReasks", 1);
+		ReflectionTestUtils.setField(extractor, "meterRegistry", new SimpleMeterRegistry());
+		int strictReextractions = 0;
+		for (int receipt = 0; receipt < RECEIPTS; receipt++) {
+			strictReextractions += extractions(receipt, image -> extractor.extract(image, "image/png").orElseThrow()) - 1;
+		}
+		int reasks = reaskCalls.values().stream().mapToInt(Integer::intValue).sum();
+
+		System.out.printf("previous prompt         median %5d, mean %5d tokens/receipt, %3d full re-extractions%n",
+				median(previousTokens), mean(previousTokens), previousReextractions);
+		System.out.printf("strict schema + re-ask  median %5d, mean %5d tokens/receipt, %3d full re-extractions, %3d re-asks%n",
+				median(tokens), mean(tokens), strictReextractions, reasks);
+		assertThat(strictReextractions).isLessThan(previousReextractions);
+	}
+
+	private interface Extraction {
+		BillsDTO extract(byte[] image) throws Exception;
+	}
+
+	// Full extractions needed until the receipt reconciles, capped like a user giving up
+	private int extractions(int receipt, Extraction extraction) throws Exception {
+		byte[] image = ("receipt-" + receipt).getBytes(StandardCharsets.UTF_8);
+		int attempts = 0;
+		BillsDTO result;
+		do {
+			result = extraction.extract(image);
+			attempts++;
+		} while (!ReceiptReconciler.isConsistent(result) && attempts < MAX_EXTRACTIONS);
+		return attempts;
+	}
+
+	private BillsDTO extractWithPreviousPrompt(byte[] image) throws Exception {
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("model", "gpt-4o");
+		payload.put("messages", List.of(
+				Map.of("role", "system", "content", PREVIOUS_PROMPT),
+				Map.of("role", "user", "content", List.of(
+						Map.of("type", "text", "text", "Extract all information from this receipt image."),
+						Map.of("type", "image_url", "image_url", Map.of("url", "data:image/png;base64," + Base64.getEncoder().encodeToString(image)))))));
+		payload.put("max_tokens", 1024);
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		String body = restTemplate.postForObject(url, new HttpEntity<>(payload, headers), String.class);
+		String content = objectMapper.readTree(body).path("choices").path(0).path("message").path("content").asText();
+		content = content.replace("```json", "").replace("```", "").trim();
+		return objectMapper.readValue(content, BillsDTO.class);
+	}
+
+	private void complete(HttpExchange exchange) throws IOException {
+		String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+		JsonNode payload = objectMapper.readTree(request);
+		Matcher image = IMAGE_DATA.matcher(request);
+		String content;
+		int receipt;
+		int images = 0;
+		if (image.find()) {
+			images = 1;
+			receipt = Integer.parseInt(new String(Base64.getDecoder().decode(image.group(1)), StandardCharsets.UTF_8).substring("receipt-".length()));
+			int call = imageCalls.merge(receipt, 1, Integer::sum);
+			boolean misread = new SplittableRandom(receipt * 1_000L + call).nextDouble() < MISREAD_RATE;
+			ObjectNode read = truth(receipt, misread);
+			// Without a response format the model tended to fence its JSON
+			content = payload.has("response_format") ? read.toString() : "```json\n" + read + "\n```";
+		} else {
+			Matcher store = STORE_NAME.matcher(request);
+			store.find();
+			receipt = Integer.parseInt(store.group(1));
+			int call = reaskCalls.merge(receipt, 1, Integer::sum);
+			boolean fixed = new SplittableRandom(-(receipt * 1_000L + call)).nextDouble() < REASK_FIX_RATE;
+			ObjectNode source = truth(receipt, !fixed);
+			ObjectNode fix = objectMapper.createObjectNode();
+			payload.path("response_format").path("json_schema").path("schema").path("properties").fieldNames()
+					.forEachRemaining(field -> fix.set(field, source.get(field)));
+			content = fix.toString();
+		}
+		int promptTokens = IMAGE_DATA.matcher(request).replaceAll("").length() / 4 + images * IMAGE_TOKENS;
+		int completionTokens = content.length() / 4;
+		tokens.merge(receipt, promptTokens + completionTokens, Integer::sum);
+
+		ObjectNode response = objectMapper.createObjectNode();
+		response.putArray("choices").addObject().putObject("message").put("role", "assistant").put("content", content);
+		response.putObject("usage").put("prompt_tokens", promptTokens).put("completion_tokens", completionTokens)
+				.put("total_tokens", promptTokens + completionTokens);
+		byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+
+	/**
+	 * What is printed on the receipt: 5-30 items, one of them followed by a discount line,
+	 * and 8% tax. A misread keeps the undiscounted price, so the items overshoot the
+	 * subtotal.
+	 */
+	private ObjectNode truth(int receipt, boolean misread) {
+		SplittableRandom random = new SplittableRandom(receipt);
+		int itemCount = 5 + random.nextInt(26);
+		int discounted = random.nextInt(itemCount);
+		double discount = 0.5 + random.nextInt(300) / 100.0;
+		List<ItemsDTO> items = new ArrayList<>();
+		double subTotal = 0;
+		for (int i = 0; i < itemCount; i++) {
+			ItemsDTO item = new ItemsDTO();
+			item.setDescription("ITEM " + receipt + "-" + i);
+			double printed = 4 + random.nextInt(2_000) / 100.0;
+			double price = i == discounted ? printed - discount : printed;
+			price = Math.round(price * 100) / 100.0;
+			subTotal += price;
+			item.setPrice(i == discounted && misread ? printed : price);
+			items.add(item);
+		}
+		subTotal = Math.round(subTotal * 100) / 100.0;
+		double tax = Math.round(subTotal * 8) / 100.0;
+		ObjectNode node = objectMapper.createObjectNode();
+		node.put("storeName", "Store " + receipt);
+		node.put("storeAddress", receipt + " Market Street");
+		node.put("date", "2024-03-01");
+		node.put("time", "12:30");
+		node.set("items", objectMapper.valueToTree(items.stream()
+				.map(item -> Map.of("description", item.getDescription(), "price", item.getPrice()))
+				.toList()));
+		node.put("subTotal", subTotal);
+		node.put("taxTotal", tax);
+		node.put("total", Math.round((subTotal + tax) * 100) / 100.0);
+		return node;
+	}
+
+	private static int median(Map<Integer, Integer> perReceipt) {
+		List<Integer> sorted = perReceipt.values().stream().sorted().toList();
+		return sorted.get(sorted.size() / 2);
+	}
+
+	private static int mean(Map<Integer, Integer> perReceipt) {
+		return (int) perReceipt.values().stream().mapToInt(Integer::intValue).average().orElse(0);
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.splitter;
+
+import com.example.splitter.config.ReadYourWritesInterceptor;
+import com.example.splitter.config.ReplicaRoutingDataSource;
+import com.example.splitter.service.RecentWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesTests {
+
+	private final RecentWrites recentWrites = new RecentWrites();
+	private final ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor();
+	private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(recentWrites, "windowMs", 5_000L);
+		ReflectionTestUtils.setField(interceptor, "recentWrites", recentWrites);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		RequestContextHolder.resetRequestAttributes();
+		ReplicaRoutingDataSource.unpin();
+	}
+
+	@Test
+	void aWriteIsHandedToTheClientAlongsideEarlierOnes() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(RecentWrites.HEADER, "3=" + (System.currentTimeMillis() + 5_000) + ", 4=1000");
+		MockHttpServletResponse response = inRequest(request);
+
+		recentWrites.markWritten(5L);
+		recentWrites.markWritten(6L);
+
+		String header = response.getHeader(RecentWrites.HEADER);
+		assertThat(header).contains("3=", "5=", "6=").doesNotContain("4=");
+	}
+
+	@Test
+	void anotherInstancesHeaderPinsTheReadToThePrimary() {
+		MockHttpServletRequest write = new MockHttpServletRequest();
+		MockHttpServletResponse written = inRequest(write);
+		recentWrites.markWritten(7L);
+
+		// A fresh instance knows nothing of the write except what the client sends back
+		RecentWrites otherInstance = new RecentWrites();
+		ReflectionTestUtils.setField(interceptor, "recentWrites", otherInstance);
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/ocr/receipt");
+		read.setParameter("id", "7");
+		read.addHeader(RecentWrites.HEADER, written.getHeader(RecentWrites.HEADER));
+
+		interceptor.preHandle(read, new MockHttpServletResponse(), new Object());
+
+		assertThat(lookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+	}
+
+	@Test
+	void readsOfOtherReceiptsStayOnTheReplica() {
+		recentWrites.markWritten(7L);
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/ocr/receipt");
+		read.setParameter("id", "8");
+		read.addHeader(RecentWrites.HEADER, "not-a-marker, 9=abc");
+
+		interceptor.preHandle(read, new MockHttpServletResponse(), new Object());
+
+		assertThat(lookupKey()).isEqualTo(ReplicaRoutingDataSource.REPLICA);
+	}
+
+	@Test
+	void thePinIsDroppedWhenAnAsyncHandlerReleasesTheThread() {
+		recentWrites.markWritten(7L);
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/ocr/receipt/image");
+		read.setParameter("id", "7");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		interceptor.preHandle(read, response, new Object());
+		assertThat(lookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+		interceptor.afterConcurrentHandlingStarted(read, response, new Object());
+
+		// The thread goes back to the pool and its next request must not inherit the pin
+		assertThat(lookupKey()).isEqualTo(ReplicaRoutingDataSource.REPLICA);
+	}
+
+	private static MockHttpServletResponse inRequest(MockHttpServletRequest request) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+		return response;
+	}
+
+	private Object lookupKey() {
+		return ReflectionTestUtils.invokeMethod(routing, "determineCurrentLookupKey");
+	}
+}
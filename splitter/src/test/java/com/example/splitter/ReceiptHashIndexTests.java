@@ -0,0 +1,145 @@
+package com.example.splitter;
+
+import com.example.splitter.repo.BillsRepo;
+import com.example.splitter.service.ReceiptHashIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReceiptHashIndexTests {
+
+	private static final long HASH = 0x1234_5678_9ABC_DEF0L;
+
+	private ReceiptHashIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ReceiptHashIndex();
+		ReflectionTestUtils.setField(index, "maxDistance", 3);
+	}
+
+	@Test
+	void findsExactMatch() {
+		index.add(HASH, 1L);
+
+		assertThat(index.findNearest(HASH)).hasValue(1L);
+	}
+
+	@Test
+	void findsHashesUpToThreeBitsAwaySpreadOverChunks() {
+		index.add(HASH, 1L);
+
+		// One flipped bit in each of three chunks leaves only the fourth chunk intact
+		long query = HASH ^ (1L | 1L << 16 | 1L << 32);
+		assertThat(index.findNearest(query)).hasValue(1L);
+	}
+
+	@Test
+	void findsHashesUpToThreeBitsAwayInsideOneChunk() {
+		index.add(HASH, 1L);
+
+		assertThat(index.findNearest(HASH ^ 0b111L << 48)).hasValue(1L);
+	}
+
+	@Test
+	void ignoresHashesFourBitsAway() {
+		index.add(HASH, 1L);
+
+		long query = HASH ^ (1L | 1L << 16 | 1L << 32 | 1L << 48);
+		assertThat(index.findNearest(query)).isEmpty();
+		assertThat(index.findNearest(HASH ^ 0b1111L)).isEmpty();
+	}
+
+	@Test
+	void prefersTheClosestCandidate() {
+		index.add(HASH ^ 0b11L, 1L);
+		index.add(HASH ^ 0b1L, 2L);
+		index.add(HASH ^ 0b111L, 3L);
+
+		assertThat(index.findNearest(HASH)).hasValue(2L);
+	}
+
+	@Test
+	void honoursALowerConfiguredDistance() {
+		ReflectionTestUtils.setField(index, "maxDistance", 1);
+		index.add(HASH, 1L);
+
+		assertThat(index.findNearest(HASH ^ 0b1L)).hasValue(1L);
+		assertThat(index.findNearest(HASH ^ 0b11L)).isEmpty();
+	}
+
+	@Test
+	void aTighterPerCallDistanceNarrowsTheMatch() {
+		index.add(HASH ^ 0b11L, 1L);
+
+		assertThat(index.findNearest(HASH, 1)).isEmpty();
+		assertThat(index.findNearest(HASH, 2)).hasValue(1L);
+		// Never wider than the configured distance
+		assertThat(index.findNearest(HASH ^ 0b11100L, 8)).isEmpty();
+	}
+
+	@Test
+	void rebuildServesTheOldTableWhileLoadingAndKeepsChangesMadeMeanwhile() {
+		BillsRepo billsRepo = mock(BillsRepo.class);
+		ReflectionTestUtils.setField(index, "billsRepo", billsRepo);
+		index.add(HASH, 1L);
+		long stored = ~HASH;
+		long addedDuringRebuild = 0x0F0F_0F0F_0F0F_0F0FL;
+		when(billsRepo.findImageHashesAfter(anyLong(), any())).thenAnswer(invocation -> {
+			// Lookups are not blocked by the load
+			assertThat(index.findNearest(HASH)).hasValue(1L);
+			index.add(addedDuringRebuild, 3L);
+			index.add(stored, 2L);
+			return List.<Object[]>of(new Object[]{2L, stored});
+		});
+
+		index.rebuild();
+
+		assertThat(index.findNearest(HASH)).isEmpty();
+		assertThat(index.findNearest(stored)).hasValue(2L);
+		assertThat(index.findNearest(addedDuringRebuild)).hasValue(3L);
+		index.remove(stored, 2L);
+		assertThat(index.findNearest(stored)).isEmpty();
+	}
+
+	@Test
+	void removedEntriesAreNoLongerFound() {
+		index.add(HASH, 1L);
+		index.add(HASH ^ 0b1L, 2L);
+
+		index.remove(HASH, 1L);
+
+		assertThat(index.findNearest(HASH)).hasValue(2L);
+		index.remove(HASH ^ 0b1L, 2L);
+		assertThat(index.findNearest(HASH)).isEmpty();
+	}
+
+	@Test
+	void removeOfUnknownEntryIsANoOp() {
+		index.add(HASH, 1L);
+
+		index.remove(HASH, 99L);
+		index.remove(~HASH, 1L);
+
+		assertThat(index.findNearest(HASH)).hasValue(1L);
+	}
+
+	@Test
+	void keepsEveryEntryPastTheInitialCapacity() {
+		for (long i = 0; i < 5000; i++) {
+			index.add(i * 0x9E37_79B9_7F4A_7C15L, i);
+		}
+
+		for (long i = 0; i < 5000; i += 499) {
+			assertThat(index.findNearest(i * 0x9E37_79B9_7F4A_7C15L)).hasValue(i);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.splitter;
+
+import com.example.splitter.repo.BillsRepo;
+import com.example.splitter.repo.ReceiptArchiveRepo;
+import com.example.splitter.service.ReceiptImageStore;
+import com.example.splitter.service.ReceiptImageSweeper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReceiptImageSweeperTests {
+
+	@TempDir
+	Path root;
+
+	private final BillsRepo billsRepo = mock(BillsRepo.class);
+	private final ReceiptArchiveRepo receiptArchiveRepo = mock(ReceiptArchiveRepo.class);
+	private final ReceiptImageStore store = new ReceiptImageStore();
+	private final ReceiptImageSweeper sweeper = new ReceiptImageSweeper();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(store, "rootDir", root.toString());
+		ReflectionTestUtils.setField(sweeper, "receiptImageStore", store);
+		ReflectionTestUtils.setField(sweeper, "billsRepo", billsRepo);
+		ReflectionTestUtils.setField(sweeper, "receiptArchiveRepo", receiptArchiveRepo);
+		ReflectionTestUtils.setField(sweeper, "graceHours", 48L);
+	}
+
+	@Test
+	void deletesOnlyOldImagesNoReceiptPointsAt() throws Exception {
+		String saved = store.store(new byte[]{1});
+		String abandoned = store.store(new byte[]{2});
+		String justUploaded = store.store(new byte[]{3});
+		age(saved);
+		age(abandoned);
+		when(billsRepo.findReferencedImageIds(anyCollection())).thenReturn(List.of(saved));
+
+		sweeper.sweepOrphans();
+
+		assertThat(store.exists(saved)).isTrue();
+		assertThat(store.exists(abandoned)).isFalse();
+		assertThat(store.exists(justUploaded)).isTrue();
+		assertThat(sweeper.getStatus().getBody()).containsEntry("scanned", 3L).containsEntry("deleted", 1L);
+	}
+
+	@Test
+	void keepsImagesOfArchivedReceipts() throws Exception {
+		String archived = store.store(new byte[]{5});
+		age(archived);
+		when(receiptArchiveRepo.findReferencedImageIds(anyCollection())).thenReturn(List.of(archived));
+
+		sweeper.sweepOrphans();
+
+		assertThat(store.exists(archived)).isTrue();
+	}
+
+	@Test
+	void uploadingAnImageAgainRestartsItsGracePeriod() throws Exception {
+		String imageId = store.store(new byte[]{4});
+		age(imageId);
+
+		store.store(new byte[]{4});
+		sweeper.sweepOrphans();
+
+		assertThat(store.exists(imageId)).isTrue();
+		assertThat(store.read(imageId)).containsExactly(4);
+	}
+
+	@Test
+	void anEmptyStoreIsNotAnError() {
+		ReflectionTestUtils.setField(store, "rootDir", root.resolve("missing").toString());
+
+		sweeper.sweepOrphans();
+
+		assertThat(sweeper.getStatus().getBody()).containsEntry("scanned", 0L);
+	}
+
+	private void age(String imageId) throws Exception {
+		Path path = root.resolve(imageId.substring(0, 2)).resolve(imageId.substring(2, 4)).resolve(imageId);
+		Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(3))));
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+import com.example.splitter.service.ReceiptReconciler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiptReconcilerTests {
+
+	@Test
+	void consistentReceiptPasses() {
+		BillsDTO bill = bill(5.49, 0.27, 5.76, 3.49, 2.00);
+
+		assertThat(ReceiptReconciler.inconsistentFields(bill)).isEmpty();
+		assertThat(ReceiptReconciler.isConsistent(bill)).isTrue();
+	}
+
+	@Test
+	void toleratesHalfACentOfRounding() {
+		BillsDTO bill = bill(3.00, 0.00, 3.005, 1.00, 2.00);
+
+		assertThat(ReceiptReconciler.isConsistent(bill)).isTrue();
+	}
+
+	@Test
+	void flagsItemsThatDoNotAddUpToSubtotal() {
+		BillsDTO bill = bill(6.00, 0.30, 6.30, 3.49, 2.00);
+
+		assertThat(ReceiptReconciler.inconsistentFields(bill)).containsExactly("items", "subTotal");
+	}
+
+	@Test
+	void flagsTotalThatDoesNotMatchSubtotalPlusTax() {
+		BillsDTO bill = bill(5.49, 0.27, 6.76, 3.49, 2.00);
+
+		assertThat(ReceiptReconciler.inconsistentFields(bill)).containsExactly("subTotal", "taxTotal", "total");
+	}
+
+	@Test
+	void flagsEveryFieldOnceWhenBothChecksFail() {
+		BillsDTO bill = bill(9.00, 0.27, 1.00, 3.49, 2.00);
+
+		assertThat(ReceiptReconciler.inconsistentFields(bill))
+				.containsExactly("items", "subTotal", "taxTotal", "total");
+	}
+
+	@Test
+	void receiptWithoutItemsIsInconsistent() {
+		BillsDTO bill = bill(0, 0, 0);
+
+		assertThat(ReceiptReconciler.inconsistentFields(bill)).containsExactly("items");
+	}
+
+	private static BillsDTO bill(double subTotal, double taxTotal, double total, double... prices) {
+		List<ItemsDTO> items = new ArrayList<>();
+		for (double price : prices) {
+			ItemsDTO item = new ItemsDTO();
+			item.setDescription("item");
+			item.setPrice(price);
+			items.add(item);
+		}
+		BillsDTO bill = new BillsDTO();
+		bill.setItems(items);
+		bill.setSubTotal(subTotal);
+		bill.setTaxTotal(taxTotal);
+		bill.setTotal(total);
+		return bill;
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.service.ReceiptSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiptSchemaTests {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void billsSchemaIsStrictAndSkipsServerFields() {
+		Map<String, Object> schema = ReceiptSchema.of(BillsDTO.class);
+
+		assertThat(schema).containsEntry("type", "object").containsEntry("additionalProperties", false);
+		Map<String, Object> properties = (Map<String, Object>) schema.get("properties");
+		assertThat(properties).containsOnlyKeys(
+				"storeName", "storeAddress", "date", "time", "subTotal", "taxTotal", "total", "items");
+		assertThat((List<String>) schema.get("required")).containsExactlyElementsOf(properties.keySet());
+		assertThat(properties.get("storeName")).isEqualTo(Map.of("type", "string"));
+		assertThat(properties.get("total")).isEqualTo(Map.of("type", "number"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void itemListBecomesArrayOfStrictObjects() {
+		Map<String, Object> properties = (Map<String, Object>) ReceiptSchema.of(BillsDTO.class).get("properties");
+
+		Map<String, Object> items = (Map<String, Object>) properties.get("items");
+		assertThat(items).containsEntry("type", "array");
+		Map<String, Object> item = (Map<String, Object>) items.get("items");
+		assertThat(item).containsEntry("type", "object").containsEntry("additionalProperties", false);
+		assertThat((Map<String, Object>) item.get("properties")).containsOnlyKeys("description", "price");
+		assertThat((List<String>) item.get("required")).containsExactly("description", "price");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void restrictedSchemaOnlyListsRequestedFields() {
+		Map<String, Object> schema = ReceiptSchema.of(BillsDTO.class, List.of("subTotal", "total", "imageHash"));
+
+		assertThat((Map<String, Object>) schema.get("properties")).containsOnlyKeys("subTotal", "total");
+		assertThat((List<String>) schema.get("required")).containsExactly("subTotal", "total");
+		assertThat(schema).containsEntry("additionalProperties", false);
+	}
+}
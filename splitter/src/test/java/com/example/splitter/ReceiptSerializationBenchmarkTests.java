@@ -0,0 +1,127 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.model.dto.ItemsDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency and allocation of writing a large receipt response, before and after the
+ * shared codec: the old path built a new ObjectMapper per call and pretty-printed into a
+ * String for the String converter to write out again; the new one streams the DTO
+ * through the shared mapper's converter straight into the response body. The shared
+ * mapper is measured with and without the Blackbird module.
+ *
+ * Timing-based, so it only runs on request:
+ * mvn test -Dtest=ReceiptSerializationBenchmarkTests -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReceiptSerializationBenchmarkTests {
+
+	private static final int ITEMS = 2_000;
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = 2_000;
+
+	private interface ResponseWriter {
+		void write(BillsDTO receipt, HttpOutputMessage response) throws Exception;
+	}
+
+	private record Result(long nanosPerOp, long bytesPerOp) {
+	}
+
+	@Test
+	void streamingThroughTheSharedMapperAgainstPerCallPrettyStrings() throws Exception {
+		BillsDTO receipt = receipt(ITEMS);
+
+		StringHttpMessageConverter stringConverter = new StringHttpMessageConverter(StandardCharsets.UTF_8);
+		ResponseWriter perCallString = (body, response) -> {
+			String pretty = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(body);
+			stringConverter.write(pretty, MediaType.APPLICATION_JSON, response);
+		};
+		MappingJackson2HttpMessageConverter shared = new MappingJackson2HttpMessageConverter(
+				Jackson2ObjectMapperBuilder.json().build());
+		ResponseWriter sharedStreaming = (body, response) -> shared.write(body, MediaType.APPLICATION_JSON, response);
+		MappingJackson2HttpMessageConverter blackbird = new MappingJackson2HttpMessageConverter(
+				Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build());
+		ResponseWriter blackbirdStreaming = (body, response) -> blackbird.write(body, MediaType.APPLICATION_JSON, response);
+
+		Result before = null;
+		Result after = null;
+		for (int round = 1; round <= 3; round++) {
+			before = report(round, "per-call String", perCallString, receipt);
+			report(round, "shared stream", sharedStreaming, receipt);
+			after = report(round, "+ blackbird", blackbirdStreaming, receipt);
+		}
+		assertThat(after.bytesPerOp()).isLessThan(before.bytesPerOp());
+	}
+
+	private static Result report(int round, String name, ResponseWriter writer, BillsDTO receipt) throws Exception {
+		HttpOutputMessage response = discardingResponse();
+		for (int i = 0; i < WARMUP; i++) {
+			writer.write(receipt, response);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+		long started = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			writer.write(receipt, response);
+		}
+		Result result = new Result((System.nanoTime() - started) / ITERATIONS,
+				(threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / ITERATIONS);
+		System.out.printf("round %d %-16s %8d ns/op %10d B/op%n", round, name, result.nanosPerOp(), result.bytesPerOp());
+		return result;
+	}
+
+	// Stands in for the servlet response: headers are reused, the body goes nowhere
+	private static HttpOutputMessage discardingResponse() {
+		HttpHeaders headers = new HttpHeaders();
+		OutputStream body = OutputStream.nullOutputStream();
+		return new HttpOutputMessage() {
+			@Override
+			public OutputStream getBody() {
+				return body;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+	}
+
+	static BillsDTO receipt(int itemCount) {
+		BillsDTO receipt = new BillsDTO();
+		receipt.setStoreName("Corner Market");
+		receipt.setStoreAddress("1 Main St");
+		receipt.setDate("2024-01-01");
+		receipt.setTime("10:00");
+		List<ItemsDTO> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			ItemsDTO item = new ItemsDTO();
+			item.setId((long) i);
+			item.setDescription("Item " + i);
+			item.setPrice(i * 1.25);
+			items.add(item);
+		}
+		receipt.setItems(items);
+		receipt.setSubTotal(items.stream().mapToDouble(ItemsDTO::getPrice).sum());
+		receipt.setTotal(receipt.getSubTotal());
+		return receipt;
+	}
+}
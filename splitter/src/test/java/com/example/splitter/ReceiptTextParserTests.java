@@ -0,0 +1,74 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.example.splitter.service.ReceiptTextParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiptTextParserTests {
+
+	@Test
+	void parsesHeaderItemsAndTotals() {
+		BillsDTO bill = ReceiptTextParser.parse(List.of(
+				"CORNER MARKET",
+				"1 Main St",
+				"Springfield",
+				"2024-03-05 14:07",
+				"MILK 2L   3.49 F",
+				"BREAD     2.50",
+				"COUPON    0.50-",
+				"SUBTOTAL  5.49",
+				"TAX       0.27",
+				"TOTAL     5.76",
+				"VISA      5.76",
+				"CHANGE    0.00"));
+
+		assertThat(bill.getStoreName()).isEqualTo("CORNER MARKET");
+		assertThat(bill.getStoreAddress()).isEqualTo("1 Main St, Springfield");
+		assertThat(bill.getDate()).isEqualTo("2024-03-05");
+		assertThat(bill.getTime()).isEqualTo("14:07");
+		assertThat(bill.getItems()).extracting("description").containsExactly("MILK 2L", "BREAD");
+		assertThat(bill.getItems()).extracting("price").containsExactly(3.49, 2.0);
+		assertThat(bill.getSubTotal()).isEqualTo(5.49);
+		assertThat(bill.getTaxTotal()).isEqualTo(0.27);
+		assertThat(bill.getTotal()).isEqualTo(5.76);
+	}
+
+	@Test
+	void normalizesUsDatesAndTwelveHourTimes() {
+		BillsDTO bill = ReceiptTextParser.parse(List.of("STORE", "3/5/24 2:07 PM", "ITEM 1.00"));
+
+		assertThat(bill.getDate()).isEqualTo("2024-03-05");
+		assertThat(bill.getTime()).isEqualTo("14:07");
+	}
+
+	@Test
+	void skipsImpossibleDatesAndKeepsLookingOnLaterLines() {
+		BillsDTO bill = ReceiptTextParser.parse(List.of(
+				"STORE",
+				"REF 13/45/2024",
+				"2023-02-29",
+				"02/30/2024",
+				"2/28/2024",
+				"ITEM 1.00"));
+
+		assertThat(bill.getDate()).isEqualTo("2024-02-28");
+	}
+
+	@Test
+	void acceptsLeapDay() {
+		BillsDTO bill = ReceiptTextParser.parse(List.of("STORE", "2024-02-29", "ITEM 1.00"));
+
+		assertThat(bill.getDate()).isEqualTo("2024-02-29");
+	}
+
+	@Test
+	void leavesDateEmptyWhenNoLineParses() {
+		BillsDTO bill = ReceiptTextParser.parse(List.of("STORE", "99/99/99", "ITEM 1.00"));
+
+		assertThat(bill.getDate()).isEmpty();
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.splitter;
+
+import com.example.splitter.model.dto.BillsDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payload size and CPU cost of the receipt response in each encoding the server can
+ * send: JSON and CBOR (WebConfig), each with and without the gzip response compression
+ * from application.properties. Mappers are configured like the application's, with
+ * Blackbird. Encoding and decoding are timed in thread CPU time, so the numbers do not
+ * depend on what else the machine is doing; allocation is per operation as in
+ * {@link ReceiptSerializationBenchmarkTests}, which builds the same receipts.
+ *
+ * Tomcat leaves bodies under server.compression.min-response-size (1024 bytes) as they
+ * are, so the gzip rows for the smallest receipt are what it would cost if it did not.
+ *
+ * Timing-based, so it only runs on request:
+ * mvn test -Dtest=ReceiptWireFormatBenchmarkTests -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReceiptWireFormatBenchmarkTests {
+
+	private static final int[] ITEM_COUNTS = {1, 10, 50, 500};
+	// Items encoded per measurement, so every receipt size gets a comparable amount of work
+	private static final int ITEMS_PER_RUN = 500_000;
+
+	private record Format(String name, ObjectMapper mapper, boolean gzip) {
+	}
+
+	private record Result(int bytes, long encodeNanos, long encodeBytesAllocated, long decodeNanos) {
+	}
+
+	@Test
+	void cborAgainstJsonWithAndWithoutGzip() throws Exception {
+		ObjectMapper json = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+		ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule())
+				.factory(new CBORFactory()).build();
+		Format[] formats = {
+				new Format("json", json, false),
+				new Format("json+gzip", json, true),
+				new Format("cbor", cbor, false),
+				new Format("cbor+gzip", cbor, true)};
+
+		System.out.printf("%5s %-10s %8s %12s %12s %12s%n", "items", "format", "bytes", "encode ns", "encode B", "decode ns");
+		for (int itemCount : ITEM_COUNTS) {
+			BillsDTO receipt = ReceiptSerializationBenchmarkTests.receipt(itemCount);
+			int iterations = Math.max(200, ITEMS_PER_RUN / itemCount);
+			Result jsonResult = null;
+			Result cborResult = null;
+			for (Format format : formats) {
+				Result result = measure(format, receipt, iterations);
+				System.out.printf("%5d %-10s %8d %12d %12d %12d%n", itemCount, format.name(), result.bytes(),
+						result.encodeNanos(), result.encodeBytesAllocated(), result.decodeNanos());
+				if (format.name().equals("json")) {
+					jsonResult = result;
+				} else if (format.name().equals("cbor")) {
+					cborResult = result;
+				}
+			}
+			// CBOR drops the quotes, colons and commas that JSON spends on every field
+			assertThat(cborResult.bytes()).isLessThan(jsonResult.bytes());
+		}
+	}
+
+	private static Result measure(Format format, BillsDTO receipt, int iterations) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		encode(format, receipt, buffer);
+		byte[] payload = buffer.toByteArray();
+		assertThat(decode(format, payload).getItems()).hasSameSizeAs(receipt.getItems());
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		for (int i = 0; i < iterations; i++) {
+			buffer.reset();
+			encode(format, receipt, buffer);
+		}
+		long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+		long started = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++) {
+			buffer.reset();
+			encode(format, receipt, buffer);
+		}
+		long encodeNanos = (threads.getCurrentThreadCpuTime() - started) / iterations;
+		long encodeBytesAllocated = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / iterations;
+
+		for (int i = 0; i < iterations; i++) {
+			decode(format, payload);
+		}
+		started = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++) {
+			decode(format, payload);
+		}
+		long decodeNanos = (threads.getCurrentThreadCpuTime() - started) / iterations;
+		return new Result(payload.length, encodeNanos, encodeBytesAllocated, decodeNanos);
+	}
+
+	private static void encode(Format format, BillsDTO receipt, ByteArrayOutputStream buffer) throws IOException {
+		if (!format.gzip()) {
+			format.mapper().writeValue(buffer, receipt);
+			return;
+		}
+		try (OutputStream out = new GZIPOutputStream(buffer)) {
+			format.mapper().writeValue(out, receipt);
+		}
+	}
+
+	private static BillsDTO decode(Format format, byte[] payload) throws IOException {
+		if (!format.gzip()) {
+			return format.mapper().readValue(payload, BillsDTO.class);
+		}
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+			return format.mapper().readValue(in, BillsDTO.class);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.splitter;
+
+import com.example.splitter.service.SettlementMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettlementMathTests {
+
+	@Test
+	void taxIsSplitInProportionToTheSubtotal() {
+		assertThat(SettlementMath.totalWithTax(10.0, 20.0, 2.0)).isEqualTo(11.0);
+		assertThat(SettlementMath.totalWithTax(1.0, 3.0, 1.0)).isEqualTo(1.333);
+	}
+
+	@Test
+	void noTaxShareWithoutASubtotal() {
+		assertThat(SettlementMath.totalWithTax(5.0, 0.0, 3.0)).isEqualTo(5.0);
+	}
+
+	@Test
+	void userTotalsKeepTheInputOrderAndAddUpToTheBill() {
+		Map<Long, Double> subtotals = new LinkedHashMap<>();
+		subtotals.put(7L, 6.0);
+		subtotals.put(3L, 4.0);
+
+		Map<Long, Double> totals = SettlementMath.userTotals(subtotals, 10.0, 1.5);
+
+		assertThat(List.copyOf(totals.keySet())).containsExactly(7L, 3L);
+		assertThat(totals.get(7L)).isEqualTo(6.9);
+		assertThat(totals.get(3L)).isEqualTo(4.6);
+		assertThat(totals.values().stream().mapToDouble(Double::doubleValue).sum()).isEqualTo(11.5);
+	}
+
+	@Test
+	void roundsToThreePlaces() {
+		assertThat(SettlementMath.round(1.23456)).isEqualTo(1.235);
+		assertThat(SettlementMath.round(-1.23456)).isEqualTo(-1.235);
+		assertThat(SettlementMath.round(2.0)).isEqualTo(2.0);
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.splitter;
+
+import com.example.splitter.service.SettlementService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettlementServiceTests {
+
+	private final SettlementService settlementService = new SettlementService();
+
+	@Test
+	void nullReceiptIdIsABadRequest() {
+		assertThat(settlementService.settle(Arrays.asList(1L, null, 2L)).getStatusCode())
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	@Test
+	void missingOrEmptyIdsAreABadRequest() {
+		assertThat(settlementService.settle(null).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(settlementService.settle(List.of()).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+}
@@ -0,0 +1,140 @@
+package com.example.splitter;
+
+import com.example.splitter.model.Users;
+import com.example.splitter.model.dto.UsersDTO;
+import com.example.splitter.repo.UsersRepo;
+import com.example.splitter.service.SplitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * How usersInSplit classifies the rows of its single INSERT ... ON CONFLICT ...
+ * RETURNING (xmax = 0) statement. Runs against the configured Postgres, since the
+ * classification relies on its system columns; each test rolls back.
+ */
+@SpringBootTest
+@Transactional
+class UsersUpsertTests {
+
+	// Far above any receipt a local database holds
+	private static final long RECEIPT = 900_000_001L;
+	private static final long OTHER_RECEIPT = 900_000_002L;
+
+	@Autowired
+	private SplitService splitService;
+
+	@Autowired
+	private UsersRepo usersRepo;
+
+	private Long anasId;
+	private Long borisId;
+
+	@BeforeEach
+	void existingUsers() {
+		anasId = added(RECEIPT, "Ana", 10.0);
+		borisId = added(OTHER_RECEIPT, "Boris", 20.0);
+	}
+
+	@Test
+	void usersWithoutAnIdAreInsertedUnderFreshIds() {
+		Map<String, List<Long>> result = upsert(user(null, RECEIPT, "Cleo", 5.0), user(null, RECEIPT, "Dan", 6.0));
+
+		assertThat(result.get("inserted")).hasSize(2).doesNotContain(anasId, borisId);
+		assertThat(result.get("updated")).isEmpty();
+		assertThat(result.get("conflicts")).isEmpty();
+		assertThat(names(RECEIPT)).containsExactlyInAnyOrder("Ana", "Cleo", "Dan");
+	}
+
+	@Test
+	void anExistingUserOfTheSameReceiptIsUpdatedInPlace() {
+		Map<String, List<Long>> result = upsert(user(anasId, RECEIPT, "Ana B.", 12.5));
+
+		assertThat(result.get("updated")).containsExactly(anasId);
+		assertThat(result.get("inserted")).isEmpty();
+		Users ana = usersRepo.findByReceiptId(RECEIPT).get(0);
+		assertThat(ana.getName()).isEqualTo("Ana B.");
+		assertThat(ana.getAmount()).isEqualTo(12.5);
+	}
+
+	@Test
+	void aUserIdOwnedByAnotherReceiptIsAConflictAndLeftAlone() {
+		Map<String, List<Long>> result = upsert(user(borisId, RECEIPT, "Mallory", 99.0));
+
+		assertThat(result.get("conflicts")).containsExactly(borisId);
+		assertThat(result.get("inserted")).isEmpty();
+		assertThat(result.get("updated")).isEmpty();
+		// Neither rewritten nor moved, and the preallocated id was not used instead
+		assertThat(names(OTHER_RECEIPT)).containsExactly("Boris");
+		assertThat(names(RECEIPT)).containsExactly("Ana");
+	}
+
+	@Test
+	void anUnknownUserIdFallsBackToItsPreallocatedId() {
+		long unknown = Long.MAX_VALUE - 7;
+
+		Map<String, List<Long>> result = upsert(user(unknown, RECEIPT, "Eve", 3.0));
+
+		assertThat(result.get("inserted")).hasSize(1).doesNotContain(unknown);
+		assertThat(usersRepo.findByReceiptId(RECEIPT))
+				.extracting(Users::getUserId, Users::getName)
+				.contains(tuple(result.get("inserted").get(0), "Eve"));
+		assertThat(usersRepo.findByReceiptId(RECEIPT)).extracting(Users::getUserId).doesNotContain(unknown);
+	}
+
+	@Test
+	void oneStatementClassifiesAMixedPayload() {
+		Map<String, List<Long>> result = upsert(
+				user(anasId, RECEIPT, "Ana", 11.0),
+				user(null, RECEIPT, "Finn", 4.0),
+				user(borisId, RECEIPT, "Boris", 1.0));
+
+		assertThat(result.get("updated")).containsExactly(anasId);
+		assertThat(result.get("inserted")).hasSize(1);
+		assertThat(result.get("conflicts")).containsExactly(borisId);
+		assertThat(names(RECEIPT)).containsExactlyInAnyOrder("Ana", "Finn");
+	}
+
+	@Test
+	void replaceRemovesUsersMissingFromThePayloadButNotConflictingOnes() {
+		Map<String, List<Long>> result = upsert(true, user(null, RECEIPT, "Gus", 2.0), user(borisId, RECEIPT, "Boris", 1.0));
+
+		assertThat(result.get("removed")).containsExactly(anasId);
+		assertThat(names(RECEIPT)).containsExactly("Gus");
+		assertThat(names(OTHER_RECEIPT)).containsExactly("Boris");
+	}
+
+	private Long added(long receiptId, String name, double amount) {
+		return upsert(user(null, receiptId, name, amount)).get("inserted").get(0);
+	}
+
+	private Map<String, List<Long>> upsert(UsersDTO... users) {
+		return upsert(false, users);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, List<Long>> upsert(boolean replace, UsersDTO... users) {
+		return (Map<String, List<Long>>) splitService.usersInSplit(List.of(users), replace).getBody();
+	}
+
+	private List<String> names(long receiptId) {
+		return usersRepo.findByReceiptId(receiptId).stream().map(Users::getName).toList();
+	}
+
+	private static UsersDTO user(Long userId, long receiptId, String name, double amount) {
+		UsersDTO user = new UsersDTO();
+		user.setUserId(userId);
+		user.setReceiptId(receiptId);
+		user.setName(name);
+		user.setAmount(amount);
+		return user;
+	}
+}
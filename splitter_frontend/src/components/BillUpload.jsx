@@ -21,6 +21,8 @@ const BillUpload = ({
   const [uploadedImage, setUploadedImage] = useState(propUploadedImage);
   const [billData, setBillData] = useState(propBillData);
   const [receiptId, setReceiptId] = useState(propReceiptId);
+  // Id of an already stored receipt this upload matches, if any
+  const [duplicateOf, setDuplicateOf] = useState(null);
 
   // Sync with props when they change
   useEffect(() => {
@@ -46,6 +48,7 @@ const BillUpload = ({
 
     setIsUploading(true);
     setError("");
+    setDuplicateOf(null);
 
     try {
       // Extract text from image using OCR
@@ -75,28 +78,13 @@ const BillUpload = ({
         throw new Error("Invalid bill data structure");
       }
 
-      // Save to database and get the actual receiptId
+      // The same photo was uploaded before: reuse that receipt instead of storing a copy
       let receiptId = null;
-      try {
-        const saveResponse = await ocrService.addReceiptToDatabase(billData);
-        console.log("Save Response:", saveResponse);
-
-        // Extract receiptId from backend response
-        if (saveResponse && saveResponse.id) {
-          receiptId = saveResponse.id;
-          console.log("Received receiptId from backend:", receiptId);
-        } else if (saveResponse && saveResponse.receiptId) {
-          receiptId = saveResponse.receiptId;
-          console.log("Received receiptId from backend:", receiptId);
-        } else {
-          console.warn("No receiptId found in backend response:", saveResponse);
-        }
-      } catch (saveError) {
-        console.warn(
-          "Failed to save to database, continuing with local data:",
-          saveError
-        );
-        // Continue with local data even if backend save fails
+      if (billData.duplicateOf) {
+        receiptId = billData.duplicateOf;
+        setDuplicateOf(billData.duplicateOf);
+      } else {
+        receiptId = await saveReceipt(billData);
       }
 
       // Use backend receiptId if available, otherwise generate temporary ID
@@ -124,6 +112,45 @@ const BillUpload = ({
     }
   };
 
+  // Save to database and get the actual receiptId
+  const saveReceipt = async (data) => {
+    try {
+      const saveResponse = await ocrService.addReceiptToDatabase(data);
+      console.log("Save Response:", saveResponse);
+
+      // A confirmed re-shot of an earlier receipt is still saved; the user decides
+      if (saveResponse && saveResponse.duplicateOf) {
+        setDuplicateOf(saveResponse.duplicateOf);
+      }
+      // Extract receiptId from backend response
+      if (saveResponse && saveResponse.id) {
+        console.log("Received receiptId from backend:", saveResponse.id);
+        return saveResponse.id;
+      } else if (saveResponse && saveResponse.receiptId) {
+        console.log("Received receiptId from backend:", saveResponse.receiptId);
+        return saveResponse.receiptId;
+      }
+      console.warn("No receiptId found in backend response:", saveResponse);
+    } catch (saveError) {
+      console.warn(
+        "Failed to save to database, continuing with local data:",
+        saveError
+      );
+      // Continue with local data even if backend save fails
+    }
+    return null;
+  };
+
+  const handleSaveAsNew = async () => {
+    const { duplicateOf: _, ...data } = billData;
+    const newReceiptId = await saveReceipt(data);
+    if (newReceiptId) {
+      setBillData(data);
+      setReceiptId(newReceiptId);
+      setDuplicateOf(null);
+    }
+  };
+
   const handleFileChange = (e) => {
     const file = e.target.files[0];
     handleFileUpload(file);
@@ -172,6 +199,21 @@ const BillUpload = ({
               className="uploaded-image"
             />
           </div>
+          {duplicateOf && (
+            <div className="duplicate-notice">
+              <AlertCircle size={20} />
+              <span>
+                {duplicateOf === receiptId
+                  ? `This image matches receipt #${duplicateOf}, which is already saved. Continuing with that receipt.`
+                  : `This looks like a re-shot of receipt #${duplicateOf}.`}
+              </span>
+              {duplicateOf === receiptId && (
+                <button className="btn-secondary" onClick={handleSaveAsNew}>
+                  Save as new receipt
+                </button>
+              )}
+            </div>
+          )}
           <div className="upload-actions">
             <button
               className="btn-secondary"
@@ -179,6 +221,7 @@ const BillUpload = ({
                 setUploadedImage(null);
                 setBillData(null);
                 setReceiptId(null);
+                setDuplicateOf(null);
                 setError("");
               }}
             >
@@ -9,9 +9,16 @@ const api = axios.create({
   },
 });
 
+// Receipts this client wrote recently, as handed out by the backend. Sent back on every
+// request so reads of them go to the primary database on whichever instance serves them.
+let recentWrites = null;
+
 // Add request interceptor for debugging
 api.interceptors.request.use(
   (config) => {
+    if (recentWrites) {
+      config.headers["Recent-Writes"] = recentWrites;
+    }
     console.log(
       `Making ${config.method.toUpperCase()} request to:`,
       config.url
@@ -28,6 +35,9 @@ api.interceptors.request.use(
 // Add response interceptor for better error handling
 api.interceptors.response.use(
   (response) => {
+    if (response.headers["recent-writes"]) {
+      recentWrites = response.headers["recent-writes"];
+    }
     console.log(`Response from ${response.config.url}:`, response.status);
     return response;
   },